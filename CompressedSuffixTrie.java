@@ -2,17 +2,24 @@ package assignment4;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class CompressedSuffixTrie {
 
     /** Define data structures and inner node class */
     static final String LETTERS = "ACGT";  // the permitted DNA characters
-    String text; // the full text of the trie
+    PackedDna text; // the full text of the trie, 2 bits per base
     CSTNode root;  // the root node
   
     public static class CSTNode {
@@ -21,6 +28,12 @@ public class CompressedSuffixTrie {
         CSTNode parent;
         CSTNode[] children;
         CSTNode suffixLink;
+        // Number of suffixes of the text starting with the text up to the end of
+        // this node, set once the trie is built
+        int occurrences;
+        // Lengths in increasing order of the suffixes that end within this node
+        // rather than at a leaf, because they also occur earlier in the text
+        int[] implicitSuffixes;
 
         // Constructor for CSTNode
         CSTNode(int start, int end, CSTNode parent) {
@@ -53,21 +66,18 @@ public class CompressedSuffixTrie {
     of the text represented by a node we split the node.
     Since processing each character of each suffix is done in constant time and 
     we navigate through each character of each suffix the time complexity 
-    is O(n^2) where n is the length of the text.
+    is O(n^2) where n is the length of the text.  Matching along a node compares
+    32 packed characters per step, which divides the constant but not the order.
     */
     public CompressedSuffixTrie(String f) {  
-        // Create the root and read the input file
+        // Create the root and read the input file, which maps each character to
+        // an integer from 0 to 3.
         root = new CSTNode(0, 0, null);
-        text = fileToString(f);
-        if (text == null || text.equals(""))
+        text = PackedDna.fromFile(f);
+        if (text == null || text.length() == 0)
             return;
         int inputLength = text.length();
         
-        // Array dna[] maps each character of the file to an integer from 0 to 3.
-        int[] dna = new int[inputLength];        
-        for (int i = 0; i < inputLength; ++i)
-            dna[i] = LETTERS.indexOf(text.charAt(i));
-        
         CSTNode node;
         int j;  // index of character being input
         int nodeChar;  // index of character already in trie
@@ -83,39 +93,42 @@ public class CompressedSuffixTrie {
             while (j < inputLength) {
                 // Test if we are at the end of the text represented by this node
                 if (nodeChar >= node.end) { 
-                    if (node.children[dna[j]] == null) {
+                    if (node.children[text.get(j)] == null) {
                         // No child starts with this character so create a new child
                         // with the rest of the suffix.
-                        node.children[dna[j]] = new CSTNode(j, inputLength, node);
+                        node.children[text.get(j)] = new CSTNode(j, inputLength, node);
                         break;
                     } else {
                         // A child starts with this character so update node to that child
-                        node = node.children[dna[j]];
+                        node = node.children[text.get(j)];
                         nodeChar = node.start;
                     }
                     
                 } else {  // Not at the end of the text represented by this node
-                    // If character of j matches with that already in trie then increment both
-                    if (dna[j] == dna[nodeChar]) {
-                        ++j;
-                        ++nodeChar;
+                    // Move j and nodeChar past the characters that match those already
+                    // in the trie, comparing up to 32 at a time.
+                    int length = min(node.end - nodeChar, inputLength - j);
+                    int matched = text.mismatch(j, text, nodeChar, length);
+                    j += matched;
+                    nodeChar += matched;
                     // If character j does not match with node we split the node 
-                    } else {
+                    if (matched < length) {
                         // New node n1 replaces the part of node that is already matched
                         CSTNode n1 = new CSTNode(node.start, nodeChar, node.parent);
-                        node.parent.children[dna[node.start]] = n1;
+                        node.parent.children[text.get(node.start)] = n1;
                         // New node n2 is the rest of the substring being input
                         CSTNode n2 = new CSTNode(j, inputLength, n1);
-                        n1.children[dna[j]] = n2;
+                        n1.children[text.get(j)] = n2;
                         // Update the old node to be a child of n1
                         node.parent = n1;
                         node.start = nodeChar;
-                        n1.children[dna[nodeChar]] = node;
+                        n1.children[text.get(nodeChar)] = node;
                         break;
                     }
                 }                
             }
         }                    
+        countOccurrences();
     }
     
     
@@ -133,17 +146,13 @@ public class CompressedSuffixTrie {
     the time complexity is O(n).
     */
     public CompressedSuffixTrie(String f, int a) {  // a is a dummy to distinguish from other constructor
-        // Create the root and read the input file
+        // Create the root and read the input file, which maps each character to
+        // an integer from 0 to 3.
         root = new CSTNode(0, 0, null);
-        text = fileToString(f);
-        if (text == null || text.equals(""))
+        text = PackedDna.fromFile(f);
+        if (text == null || text.length() == 0)
             return;
         int inputLength = text.length();
-        
-        // Array dna[] maps each character of the file to an integer from 0 to 3.
-        int[] dna = new int[inputLength];        
-        for (int i = 0; i < inputLength; ++i)
-            dna[i] = LETTERS.indexOf(text.charAt(i));
 
         // Remainder is the number of charcaters apart from the current one 
         // that we still have to input.
@@ -156,7 +165,7 @@ public class CompressedSuffixTrie {
             CSTNode previous = null;  // previous node to be split
             while (remainder >= 0) {
                 // Get the child corresponding to the first character to be input
-                CSTNode child = node.children[dna[i - remainder]];
+                CSTNode child = node.children[text.get(i - remainder)];
                 
                 // If a child already stores this character and the number of characters to be 
                 // input is greater than stored at this child, then move down the trie
@@ -164,20 +173,20 @@ public class CompressedSuffixTrie {
                 while (child != null && remainder >= child.end - child.start) {
                     remainder -= child.end - child.start;
                     node = child;
-                    child = child.children[dna[i - remainder]];
+                    child = child.children[text.get(i - remainder)];
                 }
                 
                 // If this character is not in the trie then make a new node storing
                 // the rest of the input with a suffixLink from the last node to be split (if any).
                 if (child == null) {
-                    node.children[dna[i]] = new CSTNode(i, inputLength, node);
+                    node.children[text.get(i)] = new CSTNode(i, inputLength, node);
                     if (previous != null)
                         previous.suffixLink = node;
                     previous = null;
                 } else {
                     // If this child already stores the text upto i then update the
                     // suffixLink (if any).
-                    if (dna[i] == dna[child.start + remainder]) {
+                    if (text.get(i) == text.get(child.start + remainder)) {
                         if (previous != null)
                             previous.suffixLink = node;
                         break;
@@ -185,12 +194,12 @@ public class CompressedSuffixTrie {
                         // This child stores some but not all of the text to be entered.
                         // Create a new node which becomes tha parent of this current child.
                         CSTNode newNode = new CSTNode(child.start, child.start + remainder, node);
-                        newNode.children[dna[i]] = new CSTNode(i, inputLength, newNode);
-                        newNode.children[dna[child.start + remainder]] = child;
+                        newNode.children[text.get(i)] = new CSTNode(i, inputLength, newNode);
+                        newNode.children[text.get(child.start + remainder)] = child;
                         // Update the old child
                         child.start += remainder;
                         child.parent = newNode;
-                        node.children[dna[i - remainder]] = newNode;
+                        node.children[text.get(i - remainder)] = newNode;
                         if (previous != null)
                             previous.suffixLink = newNode;
                         previous = newNode; // a node has been created by a split
@@ -204,6 +213,161 @@ public class CompressedSuffixTrie {
                 
             }
         }       
+        countOccurrences();
+    }
+    
+    
+    /** Method for counting the suffixes below each node, called once the trie is built */
+    /* TIME COMPLEXITY ANALYSIS
+    There is no terminal character, so a suffix that also occurs earlier in the
+    text ends part way along a path instead of at a leaf of its own.  If a suffix
+    occurs earlier so does every shorter suffix, so these are the last L
+    suffixes, where L is n less the number of leaves.  Each is found by moving
+    down from the root comparing only the first character of each node, taking
+    O(h) for a path of h nodes, and its length is recorded at the node where it
+    ends.  The nodes are then listed in preorder with an explicit stack, rather
+    than recursion which could overflow on a deep trie, and the counts are
+    summed from the last to the first so that each node is added to its parent
+    after its own children.  The total is O(n + L * h).
+    */
+    private void countOccurrences() {
+        int n = text == null ? 0 : text.length();
+        ArrayList<CSTNode> preorder = new ArrayList<CSTNode>();
+        ArrayList<CSTNode> stack = new ArrayList<CSTNode>();
+        stack.add(root);
+        int leaves = 0;
+        while (!stack.isEmpty()) {
+            CSTNode v = stack.remove(stack.size() - 1);
+            preorder.add(v);
+            if (v != root && !v.isInternal())
+                ++leaves;
+            for (CSTNode w : v.children)
+                if (w != null)
+                    stack.add(w);
+        }
+        
+        // Find where each suffix without a leaf ends, counting them at each node first
+        // so that their lengths can be stored in arrays of the right size.
+        CSTNode[] ends = new CSTNode[n - leaves];
+        for (int j = leaves; j < n; ++j) {
+            CSTNode v = root;
+            int i = j;
+            while (true) {
+                v = v.children[text.get(i)];
+                if (n - i <= v.end - v.start)
+                    break;
+                i += v.end - v.start;
+            }
+            ends[j - leaves] = v;
+            ++v.occurrences;
+        }
+        for (int j = leaves; j < n; ++j) {
+            CSTNode v = ends[j - leaves];
+            if (v.implicitSuffixes == null)
+                v.implicitSuffixes = new int[v.occurrences];
+            v.implicitSuffixes[--v.occurrences] = n - j;  // longest suffix last
+        }
+        
+        for (int k = preorder.size() - 1; k >= 0; --k) {
+            CSTNode v = preorder.get(k);
+            if (v != root && !v.isInternal())
+                ++v.occurrences;
+            if (v.implicitSuffixes != null)
+                v.occurrences += v.implicitSuffixes.length;
+            if (v.parent != null)
+                v.parent.occurrences += v.occurrences;
+        }
+    }
+    
+    // Returns the node where the pattern ends, or null if it is not in the text, and
+    // sets depth[0] to the length of the text down to the start of that node
+    private CSTNode locus(PackedDna pattern, int[] depth) {
+        CSTNode v = root;
+        int j = 0;
+        int length = pattern.length();
+        while (j < length) {
+            CSTNode w = v.children[pattern.get(j)];
+            if (w == null)
+                return null;
+            int k = min(w.end - w.start, length - j);
+            if (text.mismatch(w.start, pattern, j, k) < k)
+                return null;
+            depth[0] = j;
+            j += k;
+            v = w;
+        }
+        return v;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    The node where s ends is found as in findString() in O(m).  Every suffix
+    counted at that node starts with s except the suffixes ending within the
+    node that are shorter than s, which are the first few of its sorted
+    lengths, so the method runs in O(m) time plus O(log n) to search the lengths.
+    */
+    /** Method for counting the occurrences of a pattern s in the DNA sequence */
+    public int count(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return 0;
+        CSTNode v = locus(pattern, new int[1]);
+        if (v == null)
+            return 0;
+        return v.occurrences - shorterImplicitSuffixes(v, pattern.length());
+    }
+    
+    // Returns the number of suffixes ending within node v that are shorter than length
+    private static int shorterImplicitSuffixes(CSTNode v, int length) {
+        if (v.implicitSuffixes == null)
+            return 0;
+        int k = Arrays.binarySearch(v.implicitSuffixes, length);
+        return k >= 0 ? k : -k - 1;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    After finding the node where s ends in O(m), the subtree below it is walked
+    with an explicit stack.  A leaf gives the index of its suffix from its start
+    less the length of the text above it, and a suffix ending within a node from
+    its length.  The subtree has fewer than 2k nodes for k occurrences, so the
+    method runs in O(m + k log k) including sorting the indices.
+    */
+    /** Method for finding the indices of all occurrences of a pattern s, in increasing order */
+    public int[] findAll(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return new int[0];
+        int[] depth = new int[1];
+        CSTNode top = locus(pattern, depth);
+        if (top == null)
+            return new int[0];
+        int n = text.length();
+        int[] result = new int[top.occurrences - shorterImplicitSuffixes(top, pattern.length())];
+        int count = 0;
+        
+        // Stack of nodes with the length of the text above each
+        ArrayList<CSTNode> stack = new ArrayList<CSTNode>();
+        int[] above = new int[16];
+        stack.add(top);
+        above[0] = depth[0];
+        while (!stack.isEmpty()) {
+            int d = above[stack.size() - 1];
+            CSTNode v = stack.remove(stack.size() - 1);
+            if (v != root && !v.isInternal())
+                result[count++] = v.start - d;
+            if (v.implicitSuffixes != null)
+                for (int i = v == top ? shorterImplicitSuffixes(v, pattern.length()) : 0;
+                        i < v.implicitSuffixes.length; ++i)
+                    result[count++] = n - v.implicitSuffixes[i];
+            for (CSTNode w : v.children)
+                if (w != null) {
+                    if (stack.size() == above.length)
+                        above = Arrays.copyOf(above, 2 * above.length);
+                    above[stack.size()] = d + v.end - v.start;
+                    stack.add(w);
+                }
+        }
+        Arrays.sort(result);
+        return result;
     }
         
     
@@ -217,8 +381,13 @@ public class CompressedSuffixTrie {
     This procedure is repeated for each character of s and thus takes 4 * m steps where
     4 is the number of charcaters in the DNA alphabet and m is the length of s.
     Each step takes O(1) primitive opeartions so the method runs in O(4 * m) = O(m) time.
+    The text at each node is compared with s 32 packed characters at a time rather
+    than by making substrings of both.
     */
     public int findString(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return -1;  // s has a character that is not in the text
         int i;      // pointer to an index in the text to be searched
         int j = 0;  // pointer to an index in the input substring
         int length = s.length();    // length of the substring that we are searching for
@@ -236,17 +405,17 @@ public class CompressedSuffixTrie {
                     continue;
                 i = w.start;
                 
-                if (LETTERS.indexOf(s.charAt(j)) == child) {
+                if (pattern.get(j) == child) {
                     // The first character at this node is the current character in the substring
                     nodeLength = w.end - i;
                     if (length <= nodeLength) {
                         // Substring being searched for must be entirely at this node or not in text
-                        if (s.substring(j, j + length).equals(text.substring(i, i + length)))
+                        if (text.mismatch(i, pattern, j, length) == length)
                             return i - j;
                         else
                             return -1;
                     } else {
-                        if (s.substring(j, j + nodeLength).equals(text.substring(i, i + nodeLength))) { 
+                        if (text.mismatch(i, pattern, j, nodeLength) == nodeLength) { 
                             // Substring being searched for matches this node but is longer
                             length = length - nodeLength;
                             j = j + nodeLength;
@@ -276,7 +445,8 @@ public class CompressedSuffixTrie {
     */
     public static float similarityAnalyser(String f1, String f2, String f3) {
         
-        // Convert files to strings
+        // Convert files to strings.  Any characters are compared, not just A, C, G
+        // and T, so the files are not packed.
         String x = fileToString(f1);
         String y = fileToString(f2);
         if (x == null || y == null || x.equals("") || y.equals("")) {
@@ -305,14 +475,14 @@ public class CompressedSuffixTrie {
             }            
         }
         
-        // Find the longest subsequence.
-        String longest = "";
+        // Find the longest subsequence, built backwards.
+        StringBuilder longest = new StringBuilder();
         int i = xLength - 1; // Start form the end of both input strings
         int j = yLength - 1;
         while (i >= 0 && j >= 0) {
             if (x.charAt(i) == y.charAt(j)) {
                 // If charcaters match add that character to the front of result and decrement both i and j
-                longest = x.charAt(i) + longest;
+                longest.append(x.charAt(i));
                 --i;
                 --j;
             } else if (longestSubsequences[i][j + 1] > longestSubsequences[i + 1][j])
@@ -333,7 +503,7 @@ public class CompressedSuffixTrie {
             System.out.println(ex);
         }
         PrintWriter printToFile = new PrintWriter(writer);
-        printToFile.println(longest);
+        printToFile.println(longest.reverse());
         printToFile.close();
         // Return the degree of similarity
         return (float) longestSubsequences[xLength][yLength] / max(xLength, yLength);
@@ -358,3 +528,822 @@ public class CompressedSuffixTrie {
         return result; 
     }
 }
+
+
+/**
+ * The suffix trie built by the secondary (Ukkonen) constructor of
+ * CompressedSuffixTrie, with the nodes held in columns of ints instead of
+ * CSTNode objects.  A leaf never gains children and an internal node never
+ * loses them, so leaves and internal nodes are numbered separately: internal
+ * node k is k and leaf k is ~k, which is negative.  Internal node 0 is the
+ * root, and since the root is never a child or a sibling 0 also stands for no
+ * node.  The children of a node are a linked list through the sibling
+ * columns, and the character a child starts with is found from the text
+ * rather than stored.  A leaf has only a start and a sibling, since it ends at
+ * the end of the text, so it takes 8 bytes and an internal node 20, against
+ * about 64 for a CSTNode and its array of children.  The columns can be held
+ * outside the Java heap in direct buffers.
+ */
+class FlatSuffixTrie {
+    
+    /** Define data structures */
+    final PackedDna dna;  // the text with A, C, G, T as 0 to 3
+    final int inputLength;
+    private final boolean offHeap;
+    // Internal node k represents characters from index start(k) to index end(k)-1 of the text
+    private IntBuffer start, end;
+    private IntBuffer child;       // first child of each internal node
+    private IntBuffer sibling;     // next child of the same parent
+    private IntBuffer suffixLink;
+    private int internalNodes = 1;  // the root
+    // Leaf k represents characters from index leafStart(k) to the end of the text
+    private final IntBuffer leafStart;
+    private final IntBuffer leafSibling;
+    private int leaves;
+    
+    public FlatSuffixTrie(String f) {
+        this(f, false);
+    }
+    
+    /** Constructor, holding the nodes outside the heap if offHeap is true */
+    /* 
+    As for the secondary constructor of CompressedSuffixTrie, which this follows
+    step by step, the time complexity is O(n).  Each child list has at most 4
+    entries, so finding or replacing a child is O(1).  A suffix trie of n
+    characters has at most n leaves, whose columns are allocated once, and at
+    most n internal nodes, whose columns grow by half as needed.
+    */
+    public FlatSuffixTrie(String f, boolean offHeap) {
+        this.offHeap = offHeap;
+        PackedDna text = PackedDna.fromFile(f);
+        dna = text == null ? new PackedDna(0) : text;
+        inputLength = dna.length();
+        leafStart = column(null, inputLength);
+        leafSibling = column(null, inputLength);
+        int capacity = inputLength / 2 + 1;
+        start = column(null, capacity);
+        end = column(null, capacity);
+        child = column(null, capacity);
+        sibling = column(null, capacity);
+        suffixLink = column(null, capacity);
+        
+        // Remainder is the number of charcaters apart from the current one 
+        // that we still have to input.
+        int remainder = -1;
+        int node = 0;
+        
+        // Loop over each character of the input string
+        for (int i = 0; i < inputLength; ++i) {
+            ++remainder;
+            int previous = 0;  // previous node to be split
+            while (remainder >= 0) {
+                // Get the child corresponding to the first character to be input
+                int c = findChild(node, dna.get(i - remainder));
+                
+                // Move down the trie while the characters to be input pass the end of the child
+                while (c > 0 && remainder >= end.get(c) - start.get(c)) {
+                    remainder -= end.get(c) - start.get(c);
+                    node = c;
+                    c = findChild(c, dna.get(i - remainder));
+                }
+                
+                if (c == 0) {
+                    // This character is not in the trie so make a new leaf
+                    addChild(node, newLeaf(i));
+                    if (previous != 0)
+                        suffixLink.put(previous, node);
+                    previous = 0;
+                } else {
+                    int split = start(c) + remainder;
+                    if (dna.get(i) == dna.get(split)) {
+                        // This child already stores the text upto i
+                        if (previous != 0)
+                            suffixLink.put(previous, node);
+                        break;
+                    } else {
+                        // Split the child with a new node that becomes its parent
+                        int newNode = newNode(start(c), split);
+                        replaceChild(node, c, newNode);
+                        if (c > 0)
+                            start.put(c, split);
+                        else
+                            leafStart.put(~c, split);
+                        addChild(newNode, c);
+                        addChild(newNode, newLeaf(i));
+                        if (previous != 0)
+                            suffixLink.put(previous, newNode);
+                        previous = newNode; // a node has been created by a split
+                    }
+                }
+                
+                if (node == 0)
+                    --remainder;
+                else
+                    node = suffixLink.get(node);
+            }
+        }
+    }
+    
+    // Returns a column of the given capacity holding the contents of old, if any
+    private IntBuffer column(IntBuffer old, int capacity) {
+        capacity = max(capacity, 1);
+        IntBuffer column;
+        if (offHeap)
+            column = ByteBuffer.allocateDirect(4 * capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+        else
+            column = IntBuffer.wrap(new int[capacity]);
+        if (old != null) {
+            old.clear();
+            column.put(old);
+            column.clear();
+        }
+        return column;
+    }
+    
+    private int newNode(int from, int to) {
+        if (internalNodes == start.capacity()) {
+            int capacity = internalNodes + internalNodes / 2 + 1;
+            start = column(start, capacity);
+            end = column(end, capacity);
+            child = column(child, capacity);
+            sibling = column(sibling, capacity);
+            suffixLink = column(suffixLink, capacity);
+        }
+        start.put(internalNodes, from);
+        end.put(internalNodes, to);
+        return internalNodes++;
+    }
+    
+    private int newLeaf(int from) {
+        leafStart.put(leaves, from);
+        return ~leaves++;
+    }
+    
+    private int start(int w) {
+        return w > 0 ? start.get(w) : leafStart.get(~w);
+    }
+    
+    private int end(int w) {
+        return w > 0 ? end.get(w) : inputLength;
+    }
+    
+    private int sibling(int w) {
+        return w > 0 ? sibling.get(w) : leafSibling.get(~w);
+    }
+    
+    private void setSibling(int w, int s) {
+        if (w > 0)
+            sibling.put(w, s);
+        else
+            leafSibling.put(~w, s);
+    }
+    
+    // Returns the child of node starting with character c, or 0 if there is none
+    private int findChild(int node, int c) {
+        if (node < 0)
+            return 0;
+        for (int w = child.get(node); w != 0; w = sibling(w))
+            if (dna.get(start(w)) == c)
+                return w;
+        return 0;
+    }
+    
+    private void addChild(int node, int c) {
+        setSibling(c, child.get(node));
+        child.put(node, c);
+    }
+    
+    // Puts newChild in the place of oldChild in the children of node
+    private void replaceChild(int node, int oldChild, int newChild) {
+        setSibling(newChild, sibling(oldChild));
+        int w = child.get(node);
+        if (w == oldChild) {
+            child.put(node, newChild);
+            return;
+        }
+        while (sibling(w) != oldChild)
+            w = sibling(w);
+        setSibling(w, newChild);
+    }
+    
+    /** Returns the number of nodes including the root */
+    public int size() {
+        return internalNodes + leaves;
+    }
+    
+    /** Method for finding the first occurrence of a pattern s in the DNA sequence */
+    /* TIME COMPLEXITY ANALYSIS
+    As for CompressedSuffixTrie.findString(), each character of s is compared
+    once with the text, 32 at a time, and at most 4 children are examined at each node, so the
+    method runs in O(m) time where m is the length of s.  It returns the same
+    index as findString() on a trie built by the secondary constructor.
+    */
+    public int findString(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return -1;
+        int length = pattern.length();
+        if (length == 0)
+            return inputLength > 0 ? 0 : -1;
+        int node = 0;
+        int j = 0;  // pointer to an index in the input substring
+        while (true) {
+            int w = findChild(node, pattern.get(j));
+            if (w == 0)
+                return -1;
+            int i = start(w);
+            int k = min(end(w) - i, length - j);  // characters to match at this node
+            if (dna.mismatch(i, pattern, j, k) < k)
+                return -1;
+            if (j + k == length)
+                return i - j;
+            j += k;
+            node = w;
+        }
+    }
+}
+
+
+/**
+ * DNA sequence packed 2 bits per base into an array of longs, with A, C, G
+ * and T as 0 to 3.  Base i is bits 2(i mod 32) and 2(i mod 32) + 1 of word
+ * i / 32, so any 32 consecutive bases can be taken out as one long and two
+ * sequences compared a word at a time.  A base takes a quarter of a byte,
+ * against 2 bytes in a String and 4 in an int array.
+ */
+class PackedDna {
+    
+    private long[] words;
+    private int length;
+    
+    PackedDna(int capacity) {
+        words = new long[max((capacity + 31) >>> 5, 1)];
+    }
+    
+    /** Returns the bases of s packed, or null if s has a character other than A, C, G or T */
+    static PackedDna valueOf(CharSequence s) {
+        PackedDna dna = new PackedDna(s.length());
+        for (int i = 0; i < s.length(); ++i) {
+            int base = CompressedSuffixTrie.LETTERS.indexOf(s.charAt(i));
+            if (base < 0)
+                return null;
+            dna.append(base);
+        }
+        return dna;
+    }
+    
+    /**
+     * Reads the characters of file f apart from white space, as fileToString()
+     * does, packing them as they are read.  Prints an error and returns null if
+     * f cannot be read or has a character other than A, C, G or T.
+     */
+    static PackedDna fromFile(String f) {
+        File file = new File(f);
+        PackedDna dna = new PackedDna((int) min(file.length(), Integer.MAX_VALUE));
+        try (FileReader in = new FileReader(file)) {
+            char[] buffer = new char[1 << 16];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                for (int i = 0; i < n; ++i) {
+                    char c = buffer[i];
+                    if (Character.isWhitespace(c))
+                        continue;
+                    int base = CompressedSuffixTrie.LETTERS.indexOf(c);
+                    if (base < 0) {
+                        System.out.println(f + " has a character that is not A, C, G or T.");
+                        return null;
+                    }
+                    dna.append(base);
+                }
+            }
+        } catch (FileNotFoundException ex) {
+            System.out.println(f + " does not exist.");
+            return null;
+        } catch (IOException ex) {
+            System.out.println(ex);
+            return null;
+        }
+        return dna;
+    }
+    
+    void append(int base) {
+        if (length == words.length << 5)
+            words = Arrays.copyOf(words, 2 * words.length);
+        words[length >>> 5] |= (long) base << ((length & 31) << 1);
+        ++length;
+    }
+    
+    int length() {
+        return length;
+    }
+    
+    /** Returns base i as 0 to 3 */
+    int get(int i) {
+        return (int) (words[i >>> 5] >>> ((i & 31) << 1)) & 3;
+    }
+    
+    char charAt(int i) {
+        return CompressedSuffixTrie.LETTERS.charAt(get(i));
+    }
+    
+    // Returns bases i to i + 31 as a long, with base i in the lowest bits and
+    // zeros past the end of the sequence
+    private long word(int i) {
+        int w = i >>> 5;
+        int shift = (i & 31) << 1;
+        long bits = words[w] >>> shift;
+        if (shift != 0 && w + 1 < words.length)
+            bits |= words[w + 1] << (64 - shift);
+        return bits;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    Each step takes out 32 bases of each sequence as a long and XORs them, so
+    the first difference is found from the lowest set bit in O(length / 32)
+    steps.
+    */
+    /**
+     * Compares length bases from i with length bases of other from j and returns
+     * the number that match before the first difference, which is length if
+     * they are all the same.
+     */
+    int mismatch(int i, PackedDna other, int j, int length) {
+        int k = 0;
+        for (; length - k >= 32; k += 32) {
+            long difference = word(i + k) ^ other.word(j + k);
+            if (difference != 0)
+                return k + (Long.numberOfTrailingZeros(difference) >>> 1);
+        }
+        if (k < length) {
+            long difference = (word(i + k) ^ other.word(j + k)) & ((1L << ((length - k) << 1)) - 1);
+            if (difference != 0)
+                return k + (Long.numberOfTrailingZeros(difference) >>> 1);
+        }
+        return length;
+    }
+    
+    public String toString() {
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; ++i)
+            s.append(charAt(i));
+        return s.toString();
+    }
+}
+
+
+/**
+ * Suffix array of a DNA text: the starting indices of its suffixes in
+ * lexicographic order, built in linear time by induced sorting (SA-IS), with
+ * the longest common prefix array built from it on request by Kasai's method.
+ * The suffixes starting with a pattern are a range of the array, found by
+ * binary search, so besides the first occurrence it can count and list the
+ * occurrences.  It takes 4 bytes per base for the array, 4 more once the LCP
+ * array has been built, about 1 more once the first occurrence has been asked
+ * for, and a quarter of a byte for the packed text.
+ */
+class SuffixArray {
+    
+    final PackedDna text;
+    final int[] sa;   // sa[r] is the start of the suffix of rank r
+    private int[] lcp;
+    // blockMin[j][b] is the least start in blocks b to b + 2^j - 1 of BLOCK ranks
+    private int[][] blockMin;
+    private static final int BLOCK = 64;
+    
+    /** Constructor reading the text from file f, as CompressedSuffixTrie does */
+    public SuffixArray(String f) {
+        this(PackedDna.fromFile(f));
+    }
+    
+    SuffixArray(PackedDna text) {
+        this.text = text == null ? new PackedDna(0) : text;
+        int n = this.text.length();
+        int[] s = new int[n];
+        for (int i = 0; i < n; ++i)
+            s[i] = this.text.get(i);
+        sa = sais(s, CompressedSuffixTrie.LETTERS.length() - 1);
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    Each suffix is classed as S (smaller than the next suffix) or L (larger) in
+    one pass from the right.  The leftmost S suffixes of each run (LMS suffixes)
+    are put at the ends of their first character's buckets, and a pass from the
+    left then a pass from the right place every L suffix and then every S
+    suffix in order from them, so one induced sort is O(n + alphabet).
+    Sorted this way the LMS substrings are named, and if names repeat the
+    string of names, at most half as long, is sorted recursively.  The sorted
+    LMS suffixes then seed a final induced sort.  The total is
+    O(n + n/2 + n/4 + ...) = O(n).
+    */
+    // Returns the suffix array of s, whose values are from 0 to upper
+    static int[] sais(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0)
+            return new int[0];
+        if (n == 1)
+            return new int[] {0};
+        if (n == 2)
+            return s[0] < s[1] ? new int[] {0, 1} : new int[] {1, 0};
+        
+        int[] sa = new int[n];
+        boolean[] ls = new boolean[n];  // whether each suffix is S type
+        for (int i = n - 2; i >= 0; --i)
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+        
+        // Bucket boundaries: sumL[c] is the start of the bucket of c, where its L
+        // suffixes go, and sumS[c] the start of its S suffixes.
+        int[] sumL = new int[upper + 1];
+        int[] sumS = new int[upper + 1];
+        for (int i = 0; i < n; ++i) {
+            if (!ls[i])
+                ++sumS[s[i]];
+            else
+                ++sumL[s[i] + 1];
+        }
+        for (int c = 0; c <= upper; ++c) {
+            sumS[c] += sumL[c];
+            if (c < upper)
+                sumL[c + 1] += sumS[c];
+        }
+        
+        int[] lmsMap = new int[n + 1];  // number of each LMS suffix in order of position
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; ++i)
+            if (!ls[i - 1] && ls[i])
+                lmsMap[i] = m++;
+        int[] lms = new int[m];
+        for (int i = 1, k = 0; i < n; ++i)
+            if (!ls[i - 1] && ls[i])
+                lms[k++] = i;
+        induce(s, sa, ls, sumL, sumS, lms);
+        
+        if (m > 0) {
+            // Name the LMS substrings in sorted order, equal substrings sharing a name
+            int[] sortedLms = new int[m];
+            for (int i = 0, k = 0; i < n; ++i)
+                if (lmsMap[sa[i]] != -1)
+                    sortedLms[k++] = sa[i];
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; ++i) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r)
+                    same = false;
+                else {
+                    while (l < endL && s[l] == s[r]) {
+                        ++l;
+                        ++r;
+                    }
+                    if (l == n || s[l] != s[r])
+                        same = false;
+                }
+                if (!same)
+                    ++recUpper;
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+            
+            // Sort the LMS suffixes by sorting the string of names, then induce from them
+            int[] recSa = sais(recS, recUpper);
+            for (int i = 0; i < m; ++i)
+                sortedLms[i] = lms[recSa[i]];
+            induce(s, sa, ls, sumL, sumS, sortedLms);
+        }
+        return sa;
+    }
+    
+    // Places the given LMS suffixes at the ends of their buckets and induces the
+    // order of the L suffixes and then the S suffixes from them
+    private static void induce(int[] s, int[] sa, boolean[] ls, int[] sumL, int[] sumS, int[] lms) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] buf = sumS.clone();
+        for (int d : lms)
+            if (d != n)
+                sa[buf[s[d]]++] = d;
+        buf = sumL.clone();
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; ++i) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1])
+                sa[buf[s[v - 1]]++] = v - 1;
+        }
+        buf = sumL.clone();
+        for (int i = n - 1; i >= 0; --i) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1])
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+        }
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    Kasai's method takes the suffixes in order of position.  The common prefix
+    of a suffix with the one before it in the array is at least one less than
+    for the previous position, so the matched length drops by at most one per
+    position and rises at most n in total, making the method O(n).
+    */
+    /** Returns the LCP array, where lcp[r] is the length of the common prefix of the suffixes of ranks r - 1 and r */
+    public int[] lcp() {
+        if (lcp != null)
+            return lcp;
+        int n = sa.length;
+        int[] rank = new int[n];
+        for (int r = 0; r < n; ++r)
+            rank[sa[r]] = r;
+        int[] result = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; ++i) {
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            h += text.mismatch(i + h, text, j + h, min(n - i, n - j) - h);
+            result[rank[i]] = h;
+            if (h > 0)
+                --h;
+        }
+        lcp = result;
+        return lcp;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    Each step of the binary search compares the pattern with a suffix 32 bases
+    at a time, so finding the range of suffixes starting with a pattern of
+    length m takes O((m / 32 + 1) log n).
+    */
+    // Returns the first rank whose suffix is not less than the pattern, or if
+    // upper is true not less than or starting with the pattern
+    private int bound(PackedDna pattern, boolean upper) {
+        int lo = 0;
+        int hi = sa.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(sa[mid], pattern);
+            if (c < 0 || (upper && c == 0))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    // Compares the suffix at p with the pattern, returning 0 if it starts with the pattern
+    private int compare(int p, PackedDna pattern) {
+        int m = pattern.length();
+        int available = min(m, text.length() - p);
+        int k = text.mismatch(p, pattern, 0, available);
+        if (k == m)
+            return 0;
+        if (k == available)
+            return -1;  // the suffix is a proper prefix of the pattern
+        return text.get(p + k) < pattern.get(k) ? -1 : 1;
+    }
+    
+    /** Returns the number of occurrences of s in the text */
+    public int count(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return 0;
+        return bound(pattern, true) - bound(pattern, false);
+    }
+    
+    /** Returns the indices of the occurrences of s in the text in increasing order */
+    public int[] findAll(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return new int[0];
+        int[] result = Arrays.copyOfRange(sa, bound(pattern, false), bound(pattern, true));
+        Arrays.sort(result);
+        return result;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    The range of suffixes starting with s is found in O((m / 32 + 1) log n).  The
+    least start in the range is then found without visiting every occurrence:
+    the range is cut into whole blocks of BLOCK ranks, whose least start comes
+    from two overlapping entries of a sparse table of block minima, and at most
+    two partial blocks at its ends, which are scanned.  The query is therefore
+    O((m / 32 + 1) log n + BLOCK) however many times s occurs.  The table is
+    built on the first call in O(n), having (n / BLOCK) log(n / BLOCK) entries.
+    */
+    /** Returns the index of the first occurrence of s in the text, or -1 if there is none */
+    public int findString(String s) {
+        PackedDna pattern = PackedDna.valueOf(s);
+        if (pattern == null)
+            return -1;
+        int lo = bound(pattern, false);
+        int hi = bound(pattern, true);
+        if (lo == hi)
+            return -1;
+        int first = Integer.MAX_VALUE;
+        int fromBlock = (lo + BLOCK - 1) / BLOCK;
+        int toBlock = hi / BLOCK;
+        if (fromBlock >= toBlock)
+            return leftmost(lo, hi, first);
+        first = leftmost(lo, fromBlock * BLOCK, first);
+        first = leftmost(toBlock * BLOCK, hi, first);
+        int[][] table = blockMinima();
+        int j = 31 - Integer.numberOfLeadingZeros(toBlock - fromBlock);
+        return min(first, min(table[j][fromBlock], table[j][toBlock - (1 << j)]));
+    }
+    
+    // Returns the least of first and the starts of ranks lo to hi - 1
+    private int leftmost(int lo, int hi, int first) {
+        for (int r = lo; r < hi; ++r)
+            first = min(first, sa[r]);
+        return first;
+    }
+    
+    // Returns the sparse table of the least start in each run of 2^j whole blocks
+    private int[][] blockMinima() {
+        if (blockMin != null)
+            return blockMin;
+        int blocks = sa.length / BLOCK;
+        int levels = blocks == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(blocks);
+        int[][] table = new int[levels][];
+        table[0] = new int[blocks];
+        for (int b = 0; b < blocks; ++b)
+            table[0][b] = leftmost(b * BLOCK, (b + 1) * BLOCK, Integer.MAX_VALUE);
+        for (int j = 1; j < levels; ++j) {
+            int[] below = table[j - 1];
+            int[] level = table[j] = new int[blocks - (1 << j) + 1];
+            for (int b = 0; b < level.length; ++b)
+                level[b] = min(below[b], below[b + (1 << (j - 1))]);
+        }
+        blockMin = table;
+        return blockMin;
+    }
+}
+
+
+/**
+ * FM-index of a DNA text: the Burrows-Wheeler transform of the text and an end
+ * marker, packed 2 bits per character, with counts of each base at every 64th
+ * row so that the occurrences of a base before any row are found in O(1), and
+ * the text positions of the rows whose position is a multiple of SAMPLE_RATE.
+ * Occurrences of a pattern are counted by backward search and located by
+ * stepping back through the text to a sampled row.  It takes about 0.8 bytes
+ * per base: 0.25 for the transform, 0.25 for the counts, 0.125 for the
+ * samples and 0.19 to mark and rank the sampled rows.
+ */
+class FMIndex {
+    
+    static final int SAMPLE_RATE = 32;
+    private static final int BLOCK = 64;  // rows between counts
+    private static final long LOW_BITS = 0x5555555555555555L;
+    private final int n;            // length of the text, so there are n + 1 rows
+    private final long[] bwt;       // the last column, 32 characters per long
+    private final int endRow;       // row whose last character is the end marker, stored as A
+    private final int[] occ;        // occ[4b + c] is the occurrences of base c in rows before b * BLOCK
+    private final int[] c = new int[5];  // c[x] is the number of characters less than base x, counting the marker
+    private final long[] sampled;   // bit r is set if the text position of row r is sampled
+    private final int[] sampledBefore;  // set bits of sampled before each word
+    private final int[] samples;    // text positions of the sampled rows in order of row
+    
+    /** Constructor reading the text from file f, as CompressedSuffixTrie does */
+    public FMIndex(String f) {
+        this(PackedDna.fromFile(f));
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    The suffix array is built in O(n) by SuffixArray.sais() and the transform,
+    counts and samples are filled in one pass over it, so construction is O(n).
+    The suffix array and the int codes of the text are only needed while
+    building, and are then discarded.
+    */
+    FMIndex(PackedDna text) {
+        if (text == null)
+            text = new PackedDna(0);
+        n = text.length();
+        int rows = n + 1;
+        int[] s = new int[n];
+        for (int i = 0; i < n; ++i)
+            s[i] = text.get(i);
+        int[] sa = SuffixArray.sais(s, 3);
+        s = null;
+        
+        bwt = new long[(rows + 31) >>> 5];
+        occ = new int[4 * (rows / BLOCK + 1)];
+        sampled = new long[(rows + 63) >>> 6];
+        sampledBefore = new int[sampled.length];
+        samples = new int[n / SAMPLE_RATE + 1];
+        int[] count = new int[4];
+        int marker = 0;
+        int k = 0;
+        for (int r = 0; r < rows; ++r) {
+            if (r % BLOCK == 0)
+                System.arraycopy(count, 0, occ, 4 * (r / BLOCK), 4);
+            // Row 0 is the suffix holding only the marker, which is the smallest
+            int position = r == 0 ? n : sa[r - 1];
+            if (position == 0)
+                marker = r;
+            else {
+                int base = text.get(position - 1);
+                bwt[r >>> 5] |= (long) base << ((r & 31) << 1);
+                ++count[base];
+            }
+            if (position % SAMPLE_RATE == 0) {
+                sampled[r >>> 6] |= 1L << r;
+                samples[k++] = position;
+            }
+        }
+        if (rows % BLOCK == 0)
+            System.arraycopy(count, 0, occ, 4 * (rows / BLOCK), 4);
+        endRow = marker;
+        c[0] = 1;
+        for (int x = 0; x < 4; ++x)
+            c[x + 1] = c[x] + count[x];
+        for (int w = 1; w < sampled.length; ++w)
+            sampledBefore[w] = sampledBefore[w - 1] + Long.bitCount(sampled[w - 1]);
+    }
+    
+    // Returns the number of the first k characters of word that are base
+    private static int countInWord(long word, int base, int k) {
+        long x = word ^ (LOW_BITS * base);
+        long equal = ~(x | (x >>> 1)) & LOW_BITS;  // low bit of each character equal to base
+        if (k < 32)
+            equal &= (1L << (k << 1)) - 1;
+        return Long.bitCount(equal);
+    }
+    
+    // Returns the occurrences of base in the last column before row i
+    private int rank(int base, int i) {
+        int block = i / BLOCK;
+        int result = occ[4 * block + base];
+        int from = block * BLOCK;
+        for (int w = from >>> 5; (w << 5) < i; ++w)
+            result += countInWord(bwt[w], base, min(32, i - (w << 5)));
+        // The marker is stored as A but is not one
+        if (base == 0 && endRow >= from && endRow < i)
+            --result;
+        return result;
+    }
+    
+    private int lastChar(int row) {
+        return (int) (bwt[row >>> 5] >>> ((row & 31) << 1)) & 3;
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    The rows starting with the pattern are a range, which is narrowed from the
+    whole index one character at a time from the end of the pattern.  Each step
+    takes two ranks, each a lookup of the counts and at most two words of the
+    transform, so counting takes O(m) for a pattern of length m.
+    */
+    // Returns the range of rows starting with the pattern as lo * 2^32 + hi
+    private long range(String s) {
+        int lo = 0;
+        int hi = n + 1;
+        for (int j = s.length() - 1; j >= 0 && lo < hi; --j) {
+            int base = CompressedSuffixTrie.LETTERS.indexOf(s.charAt(j));
+            if (base < 0)
+                return 0;
+            lo = c[base] + rank(base, lo);
+            hi = c[base] + rank(base, hi);
+        }
+        if (s.length() == 0)
+            lo = 1;  // leave out the row of the marker alone
+        return lo < hi ? ((long) lo << 32) | hi : 0;
+    }
+    
+    /** Returns the number of occurrences of s in the text */
+    public int count(String s) {
+        long range = range(s);
+        return (int) range - (int) (range >>> 32);
+    }
+    
+    /* TIME COMPLEXITY ANALYSIS
+    The text position of a row is found by stepping back one character of the
+    text at a time, each step a rank, until a sampled row is reached, which
+    takes at most SAMPLE_RATE - 1 steps.  So the method is O(m + SAMPLE_RATE).
+    */
+    /**
+     * Returns the index of an occurrence of s in the text, or -1 if there is
+     * none.  As with a trie built by Ukkonen's method, this need not be the
+     * first occurrence.
+     */
+    public int findString(String s) {
+        long range = range(s);
+        if (range == 0)
+            return -1;
+        int row = (int) (range >>> 32);
+        int steps = 0;
+        while ((sampled[row >>> 6] & (1L << row)) == 0) {
+            int base = lastChar(row);
+            row = c[base] + rank(base, row);
+            ++steps;
+        }
+        int sample = sampledBefore[row >>> 6] + Long.bitCount(sampled[row >>> 6] & ((1L << row) - 1));
+        return samples[sample] + steps;
+    }
+    
+    /** Returns the number of bytes taken by the index */
+    public long size() {
+        return 8L * (bwt.length + sampled.length) + 4L * (occ.length + sampledBefore.length + samples.length + c.length);
+    }
+}
@@ -2,21 +2,47 @@ package assignment3;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 
 public class TaskScheduler {
     
     /* ********* Time Complexity Discussion ********
-    The tasks are added to a NodePositionList which is then sorted by release
-    time using a mergesort algorithm.
+    The tasks are sorted by release time with a radix sort over the array of
+    release times.  Each pass of the radix sort is O(n) and there are at most
+    3 passes, so the sort is O(n).
+
+    Alternatively the tasks are added to a NodePositionList which is then sorted
+    by release time using a mergesort algorithm.
     Mergesort splits the list into 2 sub-lists according to the middle element.
     The sub-lists are recursively mergesorted and then merged to give the result.
     The maximum number of elements n in a mergesort tree is 2^(h+1) - 1 where h
@@ -28,148 +54,2568 @@ public class TaskScheduler {
     For the tree as a whole the running time is O(n) per depth and has O(log n)
     height making O(n log n).
     
-    Each task is added to the HeapPriorityQueue when it is released and then 
-    removed when scheduled later.  A HeapPriorityQueue is a complete binary tree so 
-    adding an entry takes O(log n).  This is because an entry is added in the last 
-    row and may need to bubble up the height of tree, which is log n.
-    After removing the root of the complete binary tree the replacement entry may
-    need to bubble down the height of the tree so also takes O(log n).
+    Each task is added to the IntHeapPriorityQueue when it is released and then
+    removed when scheduled later.  An IntHeapPriorityQueue is a complete d-ary tree
+    so adding an entry takes O(log n).  This is because an entry is added in the last
+    row and may need to bubble up the height of tree, which is log n / log d.
+    After removing the root of the tree the replacement entry may need to bubble
+    down the height of the tree, comparing d children at each level, so takes
+    O(d log n / log d) which is O(log n) for a fixed d.
     Since n tasks are added and removed the process takes O(n log n).
+    With QueueStrategy.BUCKETS the tasks are held instead in a BucketPriorityQueue
+    with one bucket per deadline in a window of the largest deadline - release,
+    making this stage O(n) amortized plus a scan of the buckets.
     
-    Both sort and priority queue stages take O(n log n) so the algorithm as a 
-    whole is O(n log n).
+    The priority queue stage takes O(n log n), which is also the cost of the
+    mergesort, so the algorithm as a whole is O(n log n).
+
+    In event driven mode the clock jumps straight to the next release time
+    whenever the priority queue is empty, so every iteration of the simulation
+    removes at least one task.  There are then at most n iterations whatever the
+    release times are.  In unit step mode the clock advances by one each
+    iteration and the number of iterations is also proportional to the largest
+    release time.
     */
     static void scheduler(String file1, String file2, Integer m) {
-        Scanner s;
-        String name;
-        Integer release;
-        Integer deadline;        
-        NodePositionList<Task> tasks = new NodePositionList();
-        
-        // Open input file or give an error if it does not exist.
+        scheduler(file1, file2, m, new SchedulerOptions());
+    }
+
+    static void scheduler(String file1, String file2, Integer m, SchedulerOptions options) {
+        SchedulerMetrics metrics = options.metrics;
+        long start = System.nanoTime();
+        TaskSet tasks = readTasks(file1, options);
+        if (tasks == null)
+            return;
+        if (metrics != null)
+            metrics.parsed(tasks.size, System.nanoTime() - start);
+
+        // Sort the task indices by release time
+        start = System.nanoTime();
+        int[] order = sortByRelease(tasks, options);
+        if (metrics != null)
+            metrics.sorted(System.nanoTime() - start);
+
+        // The schedule is written out as each time is decided.  It goes to a temporary
+        // file which only replaces file2 if every task can be scheduled.
+        ScheduleWriter writer;
         try {
-            s = new Scanner(new File(file1));
-        } catch (FileNotFoundException ex) {
+            writer = new ScheduleWriter(file2);
+        } catch (IOException ex) {
+            System.out.println(ex);
+            return;
+        }
+
+        // The temporary file is removed unless the schedule is committed, whatever
+        // goes wrong on the way.
+        try {
+            // Optionally record which core runs each task
+            CoreAssigner cores = null;
+            if (options.trackCores)
+                cores = new CoreAssigner(Math.max(m, 0), tasks.families());
+
+            boolean feasible = simulate(tasks, order, m, options, writer, cores);
+            if (metrics != null)
+                metrics.commitEvent();
+            if (!feasible) {
+                System.out.println("Cannot be scheduled");
+                return;
+            }
+            // Give warning if the output file already exists.
+            if (new File(file2).isFile())
+                System.out.println(file2 + " already exists and will be overwritten.");
+            writer.commit();
+            if (cores != null)
+                System.out.print(cores.report());
+        } catch (IOException ex) {
+            System.out.println(ex);
+        } finally {
+            writer.abort();
+        }
+    }
+
+    // Checks whether the tasks in file1 can be scheduled on each of the numbers of
+    // cores in ms, without producing a schedule.  Returns null if file1 cannot be read.
+    static boolean[] feasibility(String file1, int[] ms) {
+        SchedulerOptions options = new SchedulerOptions();
+        TaskSet tasks = readTasks(file1, options);
+        if (tasks == null)
+            return null;
+        return new FeasibilityChecker(tasks, sortByRelease(tasks, options)).isFeasible(ms);
+    }
+
+    // Returns the smallest number of cores on which the tasks in file1 can be
+    // scheduled, or -1 if file1 cannot be read.
+    static int minimumCores(String file1) {
+        SchedulerOptions options = new SchedulerOptions();
+        TaskSet tasks = readTasks(file1, options);
+        if (tasks == null)
+            return -1;
+        return new FeasibilityChecker(tasks, sortByRelease(tasks, options)).minimumCores();
+    }
+
+    // Reads the tasks, verifying that each task has a release and deadline that
+    // are both integers.  file1 may be a text task file or a binary one written by
+    // TaskSetFile, which is recognised by its first bytes.  Prints the error and
+    // returns null if file1 cannot be read.
+    static TaskSet readTasks(String file1, SchedulerOptions options) {
+        try {
+            if (TaskSetFile.isBinary(file1))
+                return TaskSetFile.read(file1);
+            if (options.fastParser)
+                return TaskFileParser.parse(file1);
+            else
+                return TaskFileParser.parseWithScanner(file1);
+        } catch (FileNotFoundException | NoSuchFileException ex) {
             System.out.println(file1 + " does not exist.");
+        } catch (TaskFormatException ex) {
+            System.out.println(ex.getMessage());
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
+        return null;
+    }
+
+    // Returns the indices of the tasks in order of release time.  Tasks with the
+    // same release time keep the order in which they were read.
+    static int[] sortByRelease(TaskSet tasks, SchedulerOptions options) {
+        if (!options.radixSort)
+            return mergeSortByRelease(tasks, options.parallelSort);
+        if (options.parallelSort && tasks.size >= RadixSort.PARALLEL_THRESHOLD)
+            return RadixSort.parallelOrder(tasks.release, tasks.size);
+        return RadixSort.order(tasks.release, tasks.size);
+    }
+
+    // Sorts the task indices by release time with the linked list mergesort
+    static int[] mergeSortByRelease(final TaskSet tasks, boolean parallel) {
+        ArrayPositionList<Integer> list = new ArrayPositionList<>(tasks.size);
+        for (int i = 0; i < tasks.size; ++i)
+            list.addLast(i);
+        Comparator<Integer> c = new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(tasks.release[a], tasks.release[b]);
+            }
+        };
+        if (parallel)
+            Sort.parallelMergeSort(list, c);
+        else
+            Sort.mergeSort(list, c);
+        int[] order = new int[tasks.size];
+        int i = 0;
+        for (Integer id : list)
+            order[i++] = id;
+        return order;
+    }
+
+    // Simulates scheduling on m cores by the policy in the options, earliest deadline
+    // first by default, writing the tasks started at each time.  The tasks are taken
+    // in the given order, which must be by release time.  If cores is not null each
+    // task is also given a core, which is written after its deadline.  Returns false
+    // as soon as a deadline is missed.
+    static boolean simulate(TaskSet tasks, int[] order, int m, SchedulerOptions options,
+            ScheduleWriter writer, CoreAssigner cores) throws IOException {
+        // Create a priority queue with key of priority and value of the task's
+        // position in the order.
+        int n = tasks.size;
+        int[] release = tasks.release;
+        int[] deadline = tasks.deadline;
+        SchedulingPolicy policy = options.policy;
+        boolean edf = policy == SchedulingPolicy.EDF;
+        IntPriorityQueue queue = createQueue(tasks, options);
+        SchedulerMetrics metrics = options.metrics;
+        // With no cores no task can ever start, so the earliest deadline is missed
+        if (m <= 0 && n > 0) {
+            if (metrics != null) {
+                int first = 0;
+                for (int i = 1; i < n; ++i)
+                    if (deadline[i] < deadline[first])
+                        first = i;
+                metrics.missed(deadline[first], tasks.name(first));
+            }
+            return false;
+        }
+        int time = 0;
+        int next = 0;  // position in the order of the next task to be released
+        int[] started = new int[Math.max(1, Math.min(m, n))];  // tasks started at a time
+        // Priorities in release order, so a burst of tasks is a range of keys.  Every
+        // policy gives a task its priority once, so the policy is not called again
+        // in the loop, and under EDF the priority is just the deadline.
+        int[] key = new int[n];
+        if (edf)
+            for (int i = 0; i < n; ++i)
+                key[i] = deadline[order[i]];
+        else
+            for (int i = 0; i < n; ++i)
+                key[i] = policy.priority(release[order[i]], deadline[order[i]]);
+
+        // For each time, put all ready tasks into the priority queue, take the m tasks
+        // with lowest priorities out of the queue, and check if a deadline has been missed.
+        do {
+            // When the queue is empty nothing can happen until the next release, so
+            // in event driven mode move the clock straight to it.  The idle times
+            // skipped over do not appear in the output.
+            if (options.eventDriven && queue.isEmpty() && next < n && release[order[next]] > time)
+                time = release[order[next]];
+
+            // Insert any tasks released at current time into the priority queue
+            // together, so that a large burst is added bottom-up.
+            int burst = next;
+            while (burst < n && release[order[burst]] == time)
+                ++burst;
+            queue.insertAll(key, null, next, burst);
+            next = burst;
+
+            // Take a number of tasks out of the queue equal to the number of cores
+            // (provided that sufficient tasks are released).
+            writer.time(time);  /// *** FOR TESTING ONLY
+            if (metrics != null)
+                metrics.slot(queue.size());
+            int count = queue.removeMin(m, null, started);
+            for (int i = 0; i < count; ++i)
+                started[i] = order[started[i]];
+            // Under other policies the waiting task with the earliest deadline is not
+            // at the front of the queue, so a miss is only seen when a task starts late.
+            if (!edf)
+                for (int i = 0; i < count; ++i)
+                    if (deadline[started[i]] <= time) {
+                        if (metrics != null)
+                            metrics.missed(deadline[started[i]], tasks.name(started[i]));
+                        return false;
+                    }
+            if (metrics != null)
+                for (int i = 0; i < count; ++i)
+                    metrics.started(deadline[started[i]] - (time + 1));
+            if (cores == null) {
+                for (int i = 0; i < count; ++i)
+                    writer.task(tasks, started[i]);
+            } else {
+                int[] core = cores.assign(time, started, count);
+                for (int i = 0; i < count; ++i)
+                    writer.task(tasks, started[i], core[i]);
+            }
+
+            ++time;
+            // Under EDF, if the task at the front of the queue (i.e. it has not been started)
+            // has a deadline of or before the new time, then its deadline has been missed.
+            if (edf && !queue.isEmpty() && queue.minKey() <= time) {
+                if (metrics != null)
+                    metrics.missed(queue.minKey(), tasks.name(order[queue.minValue()]));
+                return false;
+            }
+
+        // Stop when there are no more tasks to be added to the queue (ie next == n)
+        // and all tasks have been removed from the queue.
+        } while (!(next == n && queue.isEmpty()));
+        if (cores != null)
+            cores.finish(time);
+        return true;
+    }
+    
+    // Creates the priority queue for simulate() chosen by the options.  Every task
+    // waiting at a time has a deadline after that time and no more than the largest
+    // deadline - release after it, so the buckets need only cover that span.
+    // Other policies do not give priorities within such a window, so use the heap.
+    static IntPriorityQueue createQueue(TaskSet tasks, SchedulerOptions options) {
+        if (options.queue == QueueStrategy.BUCKETS && options.policy == SchedulingPolicy.EDF) {
+            long span = 1;
+            for (int i = 0; i < tasks.size; ++i)
+                span = Math.max(span, (long) tasks.deadline[i] - tasks.release[i]);
+            if (span <= BucketPriorityQueue.MAX_SPAN)
+                return new BucketPriorityQueue((int) span, tasks.size);
+        }
+        return new IntHeapPriorityQueue(tasks.size, IntHeapPriorityQueue.DEFAULT_ARITY);
+    }
+
+    // *** FOR TESTING ONLY
+    public static void main(String[] args) {
+            TaskScheduler.scheduler("jaketest1.txt", "feasibleschedule1.txt", 3);
+    }
+}
+
+/**
+ * Earliest deadline first scheduler for tasks that arrive over time.  Tasks are
+ * submitted with submit() as they become known and the clock is moved on with
+ * advanceTo(), which reports each task started through the listener.  Tasks
+ * waiting for their release time are held in a priority queue keyed on release
+ * and released tasks in a priority queue keyed on deadline, so nothing is ever
+ * re-sorted.  Submitting a task takes O(log n) and deciding a time takes
+ * O(m log n) where n is the number of tasks held.  Storage for a task is reused
+ * once it has started.
+ */
+class OnlineScheduler {
+    /** Receives the decisions of the scheduler */
+    interface Listener {
+        /** Called for each task started at the given time */
+        void started(int time, String name, int release, int deadline);
+        /** Called when a task has not been started by its deadline, which is at or before time */
+        void missed(int time, String name, int release, int deadline);
+    }
+
+    private final int m;
+    private final Listener listener;
+    private final IntHeapPriorityQueue pending;  // key of release, value of task id
+    private final IntHeapPriorityQueue ready;    // key of deadline, value of task id
+    private String[] names = new String[16];
+    private int[] release = new int[16];
+    private int[] deadline = new int[16];
+    private int[] free = new int[16];  // ids that can be reused
+    private int freeCount;
+    private int ids;       // number of ids ever used
+    private int time;      // the next time to be decided
+    private boolean missed;
+
+    OnlineScheduler(int m, Listener listener) {
+        if (m < 1)
+            throw new IllegalArgumentException("Number of cores must be positive");
+        this.m = m;
+        this.listener = listener;
+        pending = new IntHeapPriorityQueue(16, IntHeapPriorityQueue.DEFAULT_ARITY);
+        ready = new IntHeapPriorityQueue(16, IntHeapPriorityQueue.DEFAULT_ARITY);
+    }
+
+    /** Returns the next time to be decided */
+    int time() { return time; }
+    /** Returns whether no deadline has been missed */
+    boolean isFeasible() { return !missed; }
+    /** Returns the number of tasks submitted but not yet started */
+    int size() { return pending.size() + ready.size(); }
+
+    /** Adds a task.  Its release time must not be before the next time to be decided */
+    void submit(String name, int release, int deadline) throws TaskFormatException {
+        if (release < 0 || deadline <= 0 || deadline <= release)
+            throw new TaskFormatException();
+        if (release < time)
+            throw new IllegalArgumentException("Release time " + release + " is before time " + time);
+        int id = allocate();
+        names[id] = name;
+        this.release[id] = release;
+        this.deadline[id] = deadline;
+        if (release == time)
+            ready.insert(deadline, id);
+        else
+            pending.insert(release, id);
+    }
+
+    /** Decides the next time.  Returns false if a deadline has been missed */
+    boolean advance() {
+        return advanceTo(time + 1);
+    }
+
+    /**
+     * Decides every time up to but not including t, skipping times at which no
+     * task is ready.  Stops as soon as a deadline is missed and returns false.
+     */
+    boolean advanceTo(int t) {
+        while (!missed && time < t) {
+            // Move tasks released by now into the ready queue
+            while (!pending.isEmpty() && pending.minKey() <= time) {
+                int id = pending.removeMinValue();
+                ready.insert(deadline[id], id);
+            }
+
+            // Nothing can happen until the next release
+            if (ready.isEmpty()) {
+                time = pending.isEmpty() ? t : Math.min(t, pending.minKey());
+                continue;
+            }
+
+            // Start the m ready tasks with the earliest deadlines
+            for (int i = 0; i < m && !ready.isEmpty(); ++i) {
+                int id = ready.removeMinValue();
+                listener.started(time, names[id], release[id], deadline[id]);
+                names[id] = null;
+                free[freeCount++] = id;
+            }
+
+            ++time;
+            // A ready task with a deadline of or before the new time has missed it
+            if (!ready.isEmpty() && ready.minKey() <= time) {
+                missed = true;
+                int id = ready.minValue();
+                listener.missed(time, names[id], release[id], deadline[id]);
+            }
+        }
+        return !missed;
+    }
+
+    // Returns an unused task id, growing the arrays if every id is in use
+    private int allocate() {
+        if (freeCount > 0)
+            return free[--freeCount];
+        if (ids == names.length) {
+            int capacity = 2 * ids;
+            names = Arrays.copyOf(names, capacity);
+            release = Arrays.copyOf(release, capacity);
+            deadline = Arrays.copyOf(deadline, capacity);
+            free = Arrays.copyOf(free, capacity);
+        }
+        return ids++;
+    }
+}
+
+/**
+ * Answers whether a set of tasks can be scheduled on a number of cores by
+ * running the same simulation as scheduler() without writing a schedule or
+ * keeping track of which tasks are started.  The release times and deadlines
+ * are copied into release order once, and the priority queue is reused by
+ * every check, so checking several numbers of cores costs no more allocation
+ * than checking one.  A checker must only be used by one thread at a time.
+ */
+class FeasibilityChecker {
+    private final int n;
+    private final int[] release;   // release times in release order
+    private final int[] deadline;  // deadlines in the same order
+    private final IntHeapPriorityQueue queue;
+
+    /** Creates a checker that shares the tasks of another but has its own queue */
+    FeasibilityChecker(FeasibilityChecker other) {
+        n = other.n;
+        release = other.release;
+        deadline = other.deadline;
+        queue = new IntHeapPriorityQueue(16, IntHeapPriorityQueue.DEFAULT_ARITY);
+    }
+
+    /** Creates a checker for the tasks, given in release order by order */
+    FeasibilityChecker(TaskSet tasks, int[] order) {
+        n = tasks.size;
+        release = new int[n];
+        deadline = new int[n];
+        for (int i = 0; i < n; ++i) {
+            release[i] = tasks.release[order[i]];
+            deadline[i] = tasks.deadline[order[i]];
+        }
+        queue = new IntHeapPriorityQueue(n, IntHeapPriorityQueue.DEFAULT_ARITY);
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    As for scheduler(), each task is inserted into and removed from the priority
+    queue once, so a check is O(n log n).  When no more than m tasks are waiting
+    they are all started by clearing the queue in O(1).  The clock jumps over
+    times when no task is waiting, so there are at most n iterations.
+    */
+    /** Returns whether every task can be started before its deadline on m cores */
+    boolean isFeasible(int m) {
+        queue.clear();
+        int time = 0;
+        int next = 0;  // index of the next task to be released
+        while (next < n || !queue.isEmpty()) {
+            // Nothing can happen until the next release
+            if (queue.isEmpty() && release[next] > time)
+                time = release[next];
+            int burst = next;
+            while (burst < n && release[burst] == time)
+                ++burst;
+            queue.insertAll(deadline, null, next, burst);
+            next = burst;
+
+            // Start the m tasks with the earliest deadlines
+            queue.removeMin(m, null, null);
+
+            ++time;
+            if (!queue.isEmpty() && queue.minKey() <= time)
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns whether the tasks can be scheduled on each of the numbers of cores in ms */
+    boolean[] isFeasible(int[] ms) {
+        boolean[] feasible = new boolean[ms.length];
+        for (int i = 0; i < ms.length; ++i)
+            feasible[i] = isFeasible(ms[i]);
+        return feasible;
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    Since every task takes one time unit, earliest deadline first is optimal and
+    a task set that can be scheduled on m cores can be scheduled on more, so the
+    smallest feasible m can be found by search.  The search starts between a
+    lower bound and an upper bound found in O(n).  The lower bound comes from the
+    density of the tasks: the j tasks with the earliest deadlines must all start
+    between the first release time and the j-th deadline, and the tasks released
+    at or after a time must all start between then and the last deadline.  The
+    upper bound is the largest number of tasks released at the same time, since
+    with that many cores every task can start at its release time.
+    Each round checks p numbers of cores in parallel, where p is the parallelism
+    of the pool, and divides the range still to be searched by p + 1, so there
+    are O(log(u - l) / log(p + 1)) rounds of O(n log n) checks.
+    */
+    /** Returns the smallest number of cores on which the tasks can be scheduled */
+    int minimumCores() {
+        return minimumCores(ForkJoinPool.commonPool());
+    }
+
+    /** Returns the smallest number of cores on which the tasks can be scheduled, checking in the pool */
+    int minimumCores(ForkJoinPool pool) {
+        if (n == 0)
+            return 0;
+        int lo = lowerBound();  // the answer is at least lo
+        int hi = upperBound();  // and hi cores are enough
+        FeasibilityChecker[] checkers = new FeasibilityChecker[Math.max(1, Math.min(pool.getParallelism(), hi - lo))];
+        checkers[0] = this;
+        for (int i = 1; i < checkers.length; ++i)
+            checkers[i] = new FeasibilityChecker(this);
+        int[] candidates = new int[checkers.length];
+        boolean[] feasible = new boolean[checkers.length];
+
+        while (lo < hi) {
+            // Check k numbers of cores spread evenly from lo to hi - 1
+            int k = Math.min(checkers.length, hi - lo);
+            for (int i = 0; i < k; ++i)
+                candidates[i] = lo + (int) ((long) (hi - lo) * i / k);
+            if (k == 1)
+                feasible[0] = isFeasible(candidates[0]);
+            else
+                pool.invoke(new CheckTask(checkers, candidates, feasible, 0, k));
+            // The answer is above every infeasible candidate below the first feasible one
+            for (int i = 0; i < k; ++i) {
+                if (feasible[i]) {
+                    hi = candidates[i];
+                    break;
+                }
+                lo = candidates[i] + 1;
+            }
+        }
+        return lo;
+    }
+
+    // Returns a number of cores below which some tasks cannot start before their deadlines
+    int lowerBound() {
+        int bound = 1;
+        long first = release[0];
+        int[] byDeadline = RadixSort.order(deadline, n);
+        long last = deadline[byDeadline[n - 1]];
+        for (int j = 0; j < n; ++j) {
+            // Tasks 0 to j by deadline start between the first release and deadline j
+            long d = deadline[byDeadline[j]];
+            bound = (int) Math.max(bound, (j + d - first) / (d - first));
+            // Tasks j to n - 1 by release start between release j and the last deadline
+            long r = release[j];
+            bound = (int) Math.max(bound, (n - j + last - r - 1) / (last - r));
+        }
+        return bound;
+    }
+
+    // Returns a number of cores which is enough for every task to start at its release time
+    int upperBound() {
+        int bound = 1;
+        for (int i = 0, j; i < n; i = j) {
+            for (j = i + 1; j < n && release[j] == release[i]; ++j)
+                ;
+            bound = Math.max(bound, j - i);
+        }
+        return bound;
+    }
+
+    // Checks candidates lo to hi - 1, each with its own checker, splitting them between tasks
+    private static class CheckTask extends RecursiveAction {
+        private final FeasibilityChecker[] checkers;
+        private final int[] candidates;
+        private final boolean[] feasible;
+        private final int lo, hi;
+
+        CheckTask(FeasibilityChecker[] checkers, int[] candidates, boolean[] feasible, int lo, int hi) {
+            this.checkers = checkers;
+            this.candidates = candidates;
+            this.feasible = feasible;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo == 1) {
+                feasible[lo] = checkers[lo].isFeasible(candidates[lo]);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new CheckTask(checkers, candidates, feasible, lo, mid),
+                        new CheckTask(checkers, candidates, feasible, mid, hi));
+            }
+        }
+    }
+}
+
+/**
+ * Gives each task started at a time its own core, trying to keep the tasks of
+ * a family on the core that last ran that family so that they find its data
+ * in that core's cache.  A task whose family last ran on a core already taken
+ * at this time gets the lowest numbered free core instead, so work is packed
+ * onto the low numbered cores and high numbered cores that stay idle show that
+ * fewer cores would do.  The cores taken at the current time are marked with
+ * the time, so nothing has to be cleared between times and assigning k tasks
+ * takes O(k) whatever the number of cores.
+ */
+class CoreAssigner {
+    private final int m;
+    private final int[] family;     // family of each task
+    private final int[] lastCore;   // core that last ran each family, or -1
+    private final int[] takenAt;    // time at which each core was last taken
+    private final long[] busy;      // number of times each core has run a task
+    private int[] core = new int[16];
+    private long tasks, sameCore;   // tasks assigned, and those on the core of their family
+    private int end;                // time at which the schedule finished
+
+    CoreAssigner(int m, int[] family) {
+        this.m = m;
+        this.family = family;
+        int families = 0;
+        for (int f : family)
+            families = Math.max(families, f + 1);
+        lastCore = new int[families];
+        Arrays.fill(lastCore, -1);
+        takenAt = new int[m];
+        Arrays.fill(takenAt, -1);
+        busy = new long[m];
+    }
+
+    /**
+     * Assigns cores to the count tasks in started, all started at the given time.
+     * Returns an array whose first count entries are their cores.  The array is
+     * reused by the next call.
+     */
+    int[] assign(int time, int[] started, int count) {
+        if (core.length < count)
+            core = new int[Math.max(count, 2 * core.length)];
+        // First give each task the core of its family if that core is still free
+        for (int i = 0; i < count; ++i) {
+            int c = lastCore[family[started[i]]];
+            if (c >= 0 && takenAt[c] != time) {
+                takenAt[c] = time;
+                core[i] = c;
+                ++sameCore;
+            } else {
+                core[i] = -1;
+            }
+        }
+        // Then give the other tasks the lowest numbered free cores.  Only the
+        // cores taken above can be skipped, so this is O(count).
+        int free = 0;
+        for (int i = 0; i < count; ++i) {
+            if (core[i] < 0) {
+                while (takenAt[free] == time)
+                    ++free;
+                takenAt[free] = time;
+                core[i] = free;
+            }
+            lastCore[family[started[i]]] = core[i];
+            ++busy[core[i]];
+        }
+        tasks += count;
+        return core;
+    }
+
+    /** Records the time at which the schedule finished */
+    void finish(int time) {
+        end = time;
+    }
+
+    /** Returns the time each core was busy and idle up to the end of the schedule */
+    String report() {
+        StringBuilder s = new StringBuilder();
+        for (int c = 0; c < m; ++c) {
+            s.append("Core ").append(c).append(" : busy ").append(busy[c])
+                    .append(" idle ").append(end - busy[c])
+                    .append(" utilization ").append(String.format("%.1f", end == 0 ? 0.0 : 100.0 * busy[c] / end))
+                    .append("%\n");
+        }
+        s.append("Same core as previous task of family : ").append(sameCore)
+                .append(" of ").append(tasks).append("\n");
+        return s.toString();
+    }
+}
+
+// Options controlling how the scheduler runs
+class SchedulerOptions {
+    // Jump the clock over times when no task is ready rather than advancing it by
+    // one time unit per iteration.  The tasks started, their times and the verdict
+    // are the same, but the skipped idle times have no "Time :" line in the output,
+    // so the file differs from the default one whenever the cores are ever idle.
+    boolean eventDriven = false;
+    // Read the task file through a FileChannel rather than a Scanner.  Both give
+    // the same tasks and the same format errors.
+    boolean fastParser = true;
+    // Sort by release time with a radix sort over the release array rather than
+    // mergesorting a NodePositionList.  Both sorts are stable.
+    boolean radixSort = true;
+    // Let either sort use the common ForkJoinPool for large task sets
+    boolean parallelSort = true;
+    // Give each task a core, written at the end of its line, and print the use of
+    // each core once the schedule is complete
+    boolean trackCores = false;
+    // Priority queue used by the scheduler to hold the released tasks.  Either
+    // gives the same schedule.
+    QueueStrategy queue = QueueStrategy.HEAP;
+    // If not null, scheduler() records how the run went here
+    SchedulerMetrics metrics = null;
+    // Order in which ready tasks are started
+    SchedulingPolicy policy = SchedulingPolicy.EDF;
+}
+
+/**
+ * Order in which the scheduler starts the tasks that are ready.  A policy gives
+ * each task a priority when it is released and the ready tasks with the lowest
+ * priorities are started first, those with equal priorities in release order.
+ * Since every task takes one time unit, a task never runs partly, so policies
+ * whose priorities depend on the time still order the ready tasks the same
+ * way at every time and can be written with fixed priorities.
+ */
+interface SchedulingPolicy {
+    /** Returns the priority of a task with the given release time and deadline */
+    int priority(int release, int deadline);
+
+    /** Earliest deadline first, which is optimal for unit tasks */
+    SchedulingPolicy EDF = new WeightedPolicy(1, 0);
+    /**
+     * Least laxity first.  The laxity of a waiting unit task at time t is
+     * deadline - t - 1, which orders the tasks waiting at t by deadline, so this
+     * gives the same schedule as EDF.
+     */
+    SchedulingPolicy LEAST_LAXITY = new SchedulingPolicy() {
+        public int priority(int release, int deadline) {
+            return deadline - 1;
+        }
+    };
+    /**
+     * Deadline monotonic: the task with the shortest relative deadline first, the
+     * one-shot counterpart of rate monotonic scheduling of periodic tasks.
+     */
+    SchedulingPolicy DEADLINE_MONOTONIC = new WeightedPolicy(1, -1);
+    /** First come first served: the task released earliest first */
+    SchedulingPolicy FIFO = new WeightedPolicy(0, 1);
+}
+
+/**
+ * Policy giving a task the priority deadlineWeight * deadline + releaseWeight * release,
+ * saturated to the range of int.  EDF is (1, 0), deadline monotonic (1, -1) and
+ * first come first served (0, 1).
+ */
+class WeightedPolicy implements SchedulingPolicy {
+    private final int deadlineWeight;
+    private final int releaseWeight;
+
+    WeightedPolicy(int deadlineWeight, int releaseWeight) {
+        this.deadlineWeight = deadlineWeight;
+        this.releaseWeight = releaseWeight;
+    }
+
+    public int priority(int release, int deadline) {
+        long p = (long) deadlineWeight * deadline + (long) releaseWeight * release;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, p));
+    }
+
+    public String toString() {
+        return "WeightedPolicy(" + deadlineWeight + ", " + releaseWeight + ")";
+    }
+}
+
+// Priority queues the scheduler can hold released tasks in
+enum QueueStrategy {
+    // IntHeapPriorityQueue, O(log n) per task whatever the deadlines
+    HEAP,
+    // BucketPriorityQueue, O(1) amortized per task, for when no task has a deadline
+    // more than BucketPriorityQueue.MAX_SPAN after its release.  The heap is used
+    // if a task does.
+    BUCKETS
+}
+
+/**
+ * Measurements of a run of scheduler(), passed in through SchedulerOptions.
+ * The counters updated for each time and each task are primitive fields and
+ * fixed size histograms, so recording does not allocate.  After the run the
+ * measurements can be read from the fields, exported with toJson(), or are
+ * committed as a SchedulerMetricsEvent if a flight recording is running.
+ * Histograms have a bucket for 0 and then one for each power of two, so
+ * bucket b counts values from 2^(b-1) to 2^b - 1.
+ */
+class SchedulerMetrics {
+    static final int BUCKETS = 33;
+    int tasks;                  // tasks read
+    long parseNanos;            // time to read and check the task file
+    long sortNanos;             // time to sort by release time
+    int slots;                  // times at which tasks were considered
+    long totalQueueDepth;       // sum over the slots of the tasks ready
+    int queueHighWaterMark;     // most tasks ready at one time
+    final long[] queueDepths = new long[BUCKETS];  // histogram of the tasks ready at each slot
+    int started;                // tasks started
+    final long[] slack = new long[BUCKETS];        // histogram of deadline - completion time
+    boolean missed;             // whether a deadline was missed
+    int missedDeadline;         // the first deadline missed
+    String missedTask;          // the task whose deadline it was
+
+    void parsed(int tasks, long nanos) {
+        this.tasks = tasks;
+        parseNanos = nanos;
+    }
+
+    void sorted(long nanos) {
+        sortNanos = nanos;
+    }
+
+    // Records a time at which depth tasks are ready
+    void slot(int depth) {
+        ++slots;
+        totalQueueDepth += depth;
+        if (depth > queueHighWaterMark)
+            queueHighWaterMark = depth;
+        ++queueDepths[bucket(depth)];
+    }
+
+    // Records a task started with the given slack
+    void started(int slack) {
+        ++started;
+        ++this.slack[bucket(slack)];
+    }
+
+    void missed(int deadline, String task) {
+        missed = true;
+        missedDeadline = deadline;
+        missedTask = task;
+    }
+
+    double tasksParsedPerSecond() {
+        return parseNanos == 0 ? 0 : tasks * 1e9 / parseNanos;
+    }
+
+    double meanQueueDepth() {
+        return slots == 0 ? 0 : (double) totalQueueDepth / slots;
+    }
+
+    static int bucket(int value) {
+        return value <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    // Commits the measurements as a flight recorder event, which does nothing
+    // unless a recording with the event enabled is running
+    void commitEvent() {
+        SchedulerMetricsEvent event = new SchedulerMetricsEvent();
+        if (!event.shouldCommit())
             return;
+        event.tasks = tasks;
+        event.tasksParsedPerSecond = tasksParsedPerSecond();
+        event.sortNanos = sortNanos;
+        event.slots = slots;
+        event.queueHighWaterMark = queueHighWaterMark;
+        event.meanQueueDepth = meanQueueDepth();
+        event.started = started;
+        event.missed = missed;
+        event.missedDeadline = missedDeadline;
+        event.missedTask = missedTask;
+        event.commit();
+    }
+
+    String toJson() {
+        StringBuilder s = new StringBuilder("{");
+        s.append("\"tasks\":").append(tasks);
+        s.append(",\"parseNanos\":").append(parseNanos);
+        s.append(",\"tasksParsedPerSecond\":").append(Math.round(tasksParsedPerSecond()));
+        s.append(",\"sortNanos\":").append(sortNanos);
+        s.append(",\"slots\":").append(slots);
+        s.append(",\"queueHighWaterMark\":").append(queueHighWaterMark);
+        s.append(",\"meanQueueDepth\":").append(meanQueueDepth());
+        s.append(",\"queueDepthHistogram\":");
+        appendHistogram(s, queueDepths);
+        s.append(",\"started\":").append(started);
+        s.append(",\"slackHistogram\":");
+        appendHistogram(s, slack);
+        s.append(",\"missedDeadline\":");
+        if (missed) {
+            s.append("{\"deadline\":").append(missedDeadline).append(",\"task\":\"");
+            for (int i = 0; i < missedTask.length(); ++i) {
+                char c = missedTask.charAt(i);
+                if (c == '"' || c == '\\')
+                    s.append('\\').append(c);
+                else if (c < ' ')
+                    s.append(String.format("\\u%04x", (int) c));
+                else
+                    s.append(c);
+            }
+            s.append("\"}");
+        } else
+            s.append("null");
+        return s.append("}").toString();
+    }
+
+    // Appends the non-empty buckets of a histogram as a JSON array
+    private static void appendHistogram(StringBuilder s, long[] histogram) {
+        s.append("[");
+        boolean first = true;
+        for (int b = 0; b < BUCKETS; ++b) {
+            if (histogram[b] == 0)
+                continue;
+            if (!first)
+                s.append(",");
+            first = false;
+            long min = b == 0 ? 0 : 1L << (b - 1);
+            long max = b == 0 ? 0 : (1L << b) - 1;
+            s.append("{\"min\":").append(min).append(",\"max\":").append(max)
+                    .append(",\"count\":").append(histogram[b]).append("}");
+        }
+        s.append("]");
+    }
+}
+
+// Flight recorder event summarising a run of scheduler()
+@Name("assignment3.Scheduler")
+@Label("Scheduler Run")
+@Category("Task Scheduler")
+class SchedulerMetricsEvent extends Event {
+    @Label("Tasks")
+    int tasks;
+    @Label("Tasks Parsed per Second")
+    double tasksParsedPerSecond;
+    @Label("Sort Nanoseconds")
+    long sortNanos;
+    @Label("Slots")
+    int slots;
+    @Label("Queue High Water Mark")
+    int queueHighWaterMark;
+    @Label("Mean Queue Depth")
+    double meanQueueDepth;
+    @Label("Tasks Started")
+    int started;
+    @Label("Deadline Missed")
+    boolean missed;
+    @Label("First Missed Deadline")
+    int missedDeadline;
+    @Label("First Missed Task")
+    String missedTask;
+}
+
+/**
+ * Writes a schedule through a fixed size buffer so that memory use does not
+ * grow with the length of the schedule.  Output goes to a temporary file in
+ * the same directory which replaces the target file on commit() and is
+ * deleted on abort(), so the target is only written if the schedule is
+ * complete.  The format is the same as printing the whole schedule with
+ * PrintWriter.println().
+ */
+class ScheduleWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] TIME = "\nTime : ".getBytes(StandardCharsets.US_ASCII);
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buffer.array();
+    private int length;  // number of bytes in the buffer
+    private boolean committed;
+
+    ScheduleWriter(String file) throws IOException {
+        // Write through a symbolic link to the file it names, as FileWriter would
+        Path path = Paths.get(file).toAbsolutePath();
+        target = Files.exists(path) ? path.toRealPath() : path;
+        // The temporary file is created like any new file, so that it is given the
+        // permissions the umask allows rather than those of Files.createTempFile
+        Path name = null;
+        FileChannel open = null;
+        for (int i = 0; open == null; ++i) {
+            name = target.resolveSibling(target.getFileName() + "." + i + ".tmp");
+            try {
+                open = FileChannel.open(name, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException ex) {
+                // taken by another schedule being written, so try the next name
+            }
+        }
+        temp = name;
+        channel = open;
+    }
+
+    /** Writes the heading for a time */
+    void time(int time) throws IOException {
+        write(TIME);
+        writeInt(time);
+        writeByte('\n');
+    }
+
+    /** Writes a line for task i */
+    void task(TaskSet tasks, int i) throws IOException {
+        writeTask(tasks, i);
+        writeByte('\n');
+    }
+
+    /** Writes a line for task i followed by the core it runs on */
+    void task(TaskSet tasks, int i, int core) throws IOException {
+        writeTask(tasks, i);
+        writeByte(' ');
+        writeInt(core);
+        writeByte('\n');
+    }
+
+    // Writes the name, release time and deadline of task i
+    private void writeTask(TaskSet tasks, int i) throws IOException {
+        int from = tasks.nameStart[i];
+        int to = tasks.nameStart[i + 1];
+        if (length + (to - from) > BUFFER_SIZE)
+            flush();
+        if (to - from > BUFFER_SIZE) {
+            ByteBuffer name = ByteBuffer.wrap(tasks.names, from, to - from);
+            while (name.hasRemaining())
+                channel.write(name);
+        } else {
+            System.arraycopy(tasks.names, from, bytes, length, to - from);
+            length += to - from;
+        }
+        writeByte(' ');
+        writeInt(tasks.release[i]);
+        writeByte(' ');
+        writeInt(tasks.deadline[i]);
+    }
+
+    /** Finishes the schedule and moves it to the target file */
+    void commit() throws IOException {
+        write(System.lineSeparator().getBytes(StandardCharsets.US_ASCII));
+        flush();
+        channel.close();
+        if (Files.exists(target)) {
+            // A file with other hard links is rewritten in place so that every link
+            // sees the schedule, otherwise the replacement keeps its permissions
+            if (linkCount(target) > 1) {
+                copyInto(target);
+                Files.delete(temp);
+                committed = true;
+                return;
+            }
+            if (Files.getFileAttributeView(target, PosixFileAttributeView.class) != null)
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    // Returns the number of hard links to a file, or 1 if the file system cannot tell
+    private static int linkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            return 1;
+        }
+    }
+
+    // Replaces the contents of the file by the schedule
+    private void copyInto(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(temp, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            for (long position = 0; position < size; )
+                position += out.transferFrom(in, position, size - position);
+        }
+    }
+
+    /** Discards the schedule, leaving the target file untouched.  Does nothing once committed. */
+    void abort() {
+        if (committed)
+            return;
+        try {
+            channel.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.position(0).limit(length);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+        length = 0;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (length == BUFFER_SIZE)
+            flush();
+        bytes[length++] = (byte) b;
+    }
+
+    private void write(byte[] b) throws IOException {
+        for (int i = 0; i < b.length; ++i)
+            writeByte(b[i]);
+    }
+
+    // Writes the decimal digits of an int without creating a String
+    private void writeInt(int value) throws IOException {
+        if (length + 11 > BUFFER_SIZE)
+            flush();
+        long v = value;
+        if (v < 0) {
+            bytes[length++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10)
+            ++digits;
+        for (int i = length + digits - 1; i >= length; --i) {
+            bytes[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        length += digits;
+    }
+}
+
+// Class to hold all of the tasks in parallel arrays.  Task i has release time
+// release[i] and deadline deadline[i], and its name is held in bytes
+// nameStart[i] to nameStart[i + 1] - 1 of names.
+class TaskSet {
+    int size;
+    int[] release;
+    int[] deadline;
+    byte[] names;
+    int[] nameStart;
+    private int namesLength;
+
+    // Creates a task set holding the given arrays, which are not copied
+    TaskSet(int size, int[] release, int[] deadline, byte[] names, int[] nameStart) {
+        this.size = size;
+        this.release = release;
+        this.deadline = deadline;
+        this.names = names;
+        this.nameStart = nameStart;
+        namesLength = nameStart[size];
+    }
+
+    TaskSet(int capacity) {
+        capacity = Math.max(capacity, 1);
+        release = new int[capacity];
+        deadline = new int[capacity];
+        nameStart = new int[capacity + 1];
+        names = new byte[8 * capacity];
+    }
+
+    // Adds a task whose name is bytes from to to - 1 of b
+    void add(byte[] b, int from, int to, int release, int deadline) {
+        if (size == this.release.length) {
+            int capacity = 2 * size;
+            this.release = Arrays.copyOf(this.release, capacity);
+            this.deadline = Arrays.copyOf(this.deadline, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity + 1);
+        }
+        int length = to - from;
+        if (namesLength + length > names.length)
+            names = Arrays.copyOf(names, Math.max(2 * names.length, namesLength + length));
+        System.arraycopy(b, from, names, namesLength, length);
+        namesLength += length;
+        this.release[size] = release;
+        this.deadline[size] = deadline;
+        nameStart[++size] = namesLength;
+    }
+
+    // Adds a task whose name is encoded with the default character set
+    void add(String name, int release, int deadline) {
+        byte[] b = name.getBytes(Charset.defaultCharset());
+        add(b, 0, b.length, release, deadline);
+    }
+
+    String name(int i) {
+        return new String(names, nameStart[i], nameStart[i + 1] - nameStart[i], Charset.defaultCharset());
+    }
+
+    // Returns the family of each task, numbered from 0.  Tasks are in the same
+    // family if their names are the same once any digits at the end are removed,
+    // so "render1" and "render22" are in family "render".  Families are found
+    // with an open addressing hash table over the name bytes.
+    int[] families() {
+        int[] family = new int[size];
+        int[] table = new int[Integer.highestOneBit(Math.max(2 * size, 2)) * 2];  // 1 + first task of each family
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            int from = nameStart[i];
+            int to = prefixEnd(i);
+            int hash = 0;
+            for (int j = from; j < to; ++j)
+                hash = 31 * hash + names[j];
+            int slot = (hash ^ (hash >>> 16)) & (table.length - 1);
+            while (true) {
+                if (table[slot] == 0) {
+                    table[slot] = i + 1;
+                    family[i] = count++;
+                    break;
+                }
+                int other = table[slot] - 1;
+                if (samePrefix(i, other)) {
+                    family[i] = family[other];
+                    break;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+        }
+        return family;
+    }
+
+    // Returns whether tasks i and j have the same name without digits at the end
+    private boolean samePrefix(int i, int j) {
+        int length = prefixEnd(i) - nameStart[i];
+        if (prefixEnd(j) - nameStart[j] != length)
+            return false;
+        for (int k = 0; k < length; ++k)
+            if (names[nameStart[i] + k] != names[nameStart[j] + k])
+                return false;
+        return true;
+    }
+
+    // Returns the end of the name of task i without any digits at the end
+    private int prefixEnd(int i) {
+        int end = nameStart[i + 1];
+        while (end > nameStart[i] && names[end - 1] >= '0' && names[end - 1] <= '9')
+            --end;
+        return end;
+    }
+}
+
+// Thrown when a task file does not contain a name, release and deadline for each task
+class TaskFormatException extends RuntimeException {
+    public TaskFormatException() {
+        super("Task attribute data does not follow required format.");
+    }
+}
+
+/**
+ * Readers for task files.  A task file is a sequence of tasks, each given as a
+ * name, a release time and a deadline separated by white space.  The release
+ * time must be a non-negative integer and the deadline an integer greater than
+ * the release time.
+ */
+class TaskFileParser {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private final FileChannel channel;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;    // index of the next byte to examine
+    private int limit;  // number of bytes read into buf
+    private boolean eof;
+    private int tokenStart, tokenEnd;  // the bytes of the last token read
+    private int mark = -1;  // start of bytes that must stay in buf when it is refilled
+
+    private TaskFileParser(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    The file is read through a FileChannel into a byte buffer which is scanned
+    once.  Each byte is examined a constant number of times (twice if a token is
+    split between two reads and has to be moved to the front of the buffer) and
+    names are copied straight into the name table of the TaskSet, so parsing is
+    O(b) where b is the size of the file.  No objects are created per task.
+    */
+    static TaskSet parse(String file) throws IOException, TaskFormatException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            // Typical lines such as "task123 4567 4600" are about 16 bytes long
+            TaskSet tasks = new TaskSet((int) Math.min(channel.size() / 16 + 16, 1 << 24));
+            TaskFileParser p = new TaskFileParser(channel);
+            while (p.next()) {
+                // Keep the name in the buffer while reading the release and deadline
+                p.mark = p.tokenStart;
+                int nameLength = p.tokenEnd - p.tokenStart;
+                if (!p.next())
+                    throw new TaskFormatException();
+                int release = p.parseInt();
+                if (!p.next())
+                    throw new TaskFormatException();
+                int deadline = p.parseInt();
+                if (release < 0 || deadline <= 0 || deadline <= release)
+                    throw new TaskFormatException();
+                tasks.add(p.buf, p.mark, p.mark + nameLength, release, deadline);
+                p.mark = -1;
+            }
+            return tasks;
+        }
+    }
+
+    /** Reads a task file one token (word) at a time with a Scanner */
+    static TaskSet parseWithScanner(String file) throws FileNotFoundException, TaskFormatException {
+        TaskSet tasks = new TaskSet(16);
+        Scanner s = new Scanner(new File(file));
+        try {
+            while (s.hasNext()) {
+                String name = s.next();
+                int release, deadline;
+                try {
+                    release = Integer.parseInt(s.next());
+                    deadline = Integer.parseInt(s.next());
+                } catch (NoSuchElementException | NumberFormatException ex) {
+                    throw new TaskFormatException();
+                }
+                if (release < 0 || deadline <= 0 || deadline <= release)
+                    throw new TaskFormatException();
+                tasks.add(name, release, deadline);
+            }
+        } finally {
+            s.close();
+        }
+        return tasks;
+    }
+
+    // Reads the next token, returning false at the end of the file
+    private boolean next() throws IOException {
+        // Skip white space
+        while (true) {
+            while (pos < limit && isWhitespace(buf[pos]))
+                ++pos;
+            if (pos < limit)
+                break;
+            if (!fill(pos))
+                return false;
+        }
+        // Find the end of the token, reading more of the file if it reaches the end of buf
+        tokenStart = pos;
+        while (true) {
+            while (pos < limit && !isWhitespace(buf[pos]))
+                ++pos;
+            if (pos < limit || !fill(tokenStart))
+                break;
+        }
+        tokenEnd = pos;
+        return true;
+    }
+
+    // Moves the bytes from index keep (or from the mark if that is earlier) to the
+    // front of buf and reads more of the file after them.  Returns false if the end
+    // of the file has been reached.
+    private boolean fill(int keep) throws IOException {
+        if (eof)
+            return false;
+        if (mark >= 0 && mark < keep)
+            keep = mark;
+        int kept = limit - keep;
+        if (kept == buf.length)
+            buf = Arrays.copyOf(buf, 2 * buf.length);
+        System.arraycopy(buf, keep, buf, 0, kept);
+        pos -= keep;
+        tokenStart -= keep;
+        if (mark >= 0)
+            mark -= keep;
+        limit = kept;
+        int read = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    // Parses the last token as an int in the same way as Integer.parseInt
+    private int parseInt() {
+        int i = tokenStart;
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            ++i;
+        }
+        if (i == tokenEnd)
+            throw new TaskFormatException();
+        long value = 0;
+        for (; i < tokenEnd; ++i) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw new TaskFormatException();
+            value = 10 * value + digit;
+            if (value > (long) Integer.MAX_VALUE + 1)
+                throw new TaskFormatException();
+        }
+        if (negative)
+            value = -value;
+        if (value > Integer.MAX_VALUE)
+            throw new TaskFormatException();
+        return (int) value;
+    }
+
+    // White space as Scanner treats it, for single byte characters
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+}
+
+/**
+ * Binary task file holding a TaskSet as it is laid out in memory, so that it
+ * can be loaded without parsing.  All ints are little endian.  The file is
+ *   header    MAGIC, VERSION, number of tasks n, length of the name table
+ *   release   n ints
+ *   deadline  n ints
+ *   nameStart n + 1 ints, task i's name being bytes nameStart[i] to
+ *             nameStart[i + 1] - 1 of the name table
+ *   names     the name table, in the bytes the text file had
+ * Files are read and written a window of at most WINDOW bytes at a time, so
+ * the columns may be larger than a single buffer or mapping can hold.
+ * A text task file is converted with
+ *   java assignment3.TaskSetFile tasks.txt tasks.bin
+ */
+class TaskSetFile {
+    static final byte[] MAGIC = {(byte) 0x89, 'T', 'S', 'K'};  // 0x89 cannot start a text task file
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int WINDOW = 1 << 26;  // largest part of the file buffered or mapped at once
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java assignment3.TaskSetFile <text task file> <binary task file>");
+            return;
+        }
+        TaskSet tasks = TaskScheduler.readTasks(args[0], new SchedulerOptions());
+        if (tasks != null)
+            write(tasks, args[1]);
+    }
+
+    // Returns whether the file starts with the magic number of a binary task file
+    static boolean isBinary(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) >= 0)
+                ;
+            return !start.hasRemaining() && Arrays.equals(start.array(), MAGIC);
+        }
+    }
+
+    // Returns the length of the file holding n tasks with a name table of namesLength bytes
+    static long fileLength(int n, int namesLength) {
+        return Math.addExact(Math.addExact(HEADER_SIZE,
+                Math.multiplyExact(4L, Math.addExact(Math.multiplyExact(3L, n), 1))), namesLength);
+    }
+
+    static void write(TaskSet tasks, String file) throws IOException {
+        int n = tasks.size;
+        int namesLength = tasks.nameStart[n];
+        long length = fileLength(n, namesLength);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, WINDOW)).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.put(MAGIC).putInt(VERSION).putInt(n).putInt(namesLength);
+            putInts(channel, buffer, tasks.release, n);
+            putInts(channel, buffer, tasks.deadline, n);
+            putInts(channel, buffer, tasks.nameStart, n + 1);
+            for (int i = 0; i < namesLength; ) {
+                int k = Math.min(namesLength - i, buffer.remaining());
+                buffer.put(tasks.names, i, k);
+                i += k;
+                if (!buffer.hasRemaining())
+                    flush(channel, buffer);
+            }
+            flush(channel, buffer);
+            if (channel.size() != length)
+                throw new IOException(file + " was not completely written");
+        }
+    }
+
+    // Adds count ints to the buffer, writing it to the channel whenever it is full
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] a, int count)
+            throws IOException {
+        for (int i = 0; i < count; ) {
+            if (buffer.remaining() < 4)
+                flush(channel, buffer);
+            int k = Math.min(count - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(a, i, k);
+            buffer.position(buffer.position() + 4 * k);
+            i += k;
+        }
+    }
+
+    // Writes out the contents of the buffer and empties it
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    The file is mapped into memory a window at a time and each window of a column
+    is copied into its array with one bulk get, with no per task parsing, so
+    loading is O(b) memory copying for a file of b bytes.  One pass over the arrays checks the same conditions
+    as the text parser, so a damaged file is rejected rather than scheduled.
+    */
+    static TaskSet read(String file) throws IOException, TaskFormatException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE)
+                throw new TaskFormatException();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            int version = header.getInt();
+            int n = header.getInt();
+            int namesLength = header.getInt();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION || n < 0 || n == Integer.MAX_VALUE
+                    || namesLength < 0 || length != fileLength(n, namesLength))
+                throw new TaskFormatException();
+
+            int[] release = new int[Math.max(n, 1)];
+            int[] deadline = new int[Math.max(n, 1)];
+            int[] nameStart = new int[n + 1];
+            byte[] names = new byte[Math.max(namesLength, 1)];
+            long position = HEADER_SIZE;
+            position = getInts(channel, position, release, n);
+            position = getInts(channel, position, deadline, n);
+            position = getInts(channel, position, nameStart, n + 1);
+            for (int i = 0; i < namesLength; ) {
+                int k = Math.min(namesLength - i, WINDOW);
+                channel.map(FileChannel.MapMode.READ_ONLY, position, k).get(names, i, k);
+                position += k;
+                i += k;
+            }
+
+            if (nameStart[0] != 0 || nameStart[n] != namesLength)
+                throw new TaskFormatException();
+            for (int i = 0; i < n; ++i)
+                if (release[i] < 0 || deadline[i] <= 0 || deadline[i] <= release[i]
+                        || nameStart[i + 1] <= nameStart[i])
+                    throw new TaskFormatException();
+            return new TaskSet(n, release, deadline, names, nameStart);
+        }
+    }
+
+    // Copies count ints starting at the given position of the file into the array,
+    // and returns the position after them
+    private static long getInts(FileChannel channel, long position, int[] a, int count)
+            throws IOException {
+        for (int i = 0; i < count; ) {
+            int k = Math.min(count - i, WINDOW / 4);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * k);
+            map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(a, i, k);
+            position += 4L * k;
+            i += k;
+        }
+        return position;
+    }
+}
+
+/**
+ * Stable least significant digit radix sort of int keys.  Rather than moving
+ * the keys it returns the order of their indices, with equal keys left in
+ * index order.  When the keys span at most 2^16 values a single counting
+ * pass is made, otherwise the spread of the keys is split into at most three
+ * digits of up to 11 bits.  The parallel version counts and distributes
+ * separate chunks of each pass in a ForkJoinPool, using digits of up to 8
+ * bits so that the counts of every chunk fit together in the cache.
+ */
+class RadixSort {
+    static final int PARALLEL_THRESHOLD = 1 << 18;  // smallest input sorted in parallel
+    private static final int CHUNK_SIZE = 1 << 16;  // smallest chunk of a parallel pass
+
+    /** Returns the indices 0 to n - 1 in order of keys[i] */
+    static int[] order(int[] keys, int n) {
+        return sort(keys, n, null);
+    }
+
+    /** Returns the indices 0 to n - 1 in order of keys[i], sorting in the common pool */
+    static int[] parallelOrder(int[] keys, int n) {
+        return sort(keys, n, ForkJoinPool.commonPool());
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    Each pass counts the digits of the n keys, takes the prefix sums of the counts
+    and then moves each key to the position given by its digit, so is
+    O(n + r) where r is the number of digit values.  The number of passes depends
+    only on the spread of the keys and is at most 3, or 4 in parallel, so the
+    sort is O(n).
+    */
+    private static int[] sort(int[] keys, int n, ForkJoinPool pool) {
+        int[] ids = new int[n];
+        if (n == 0)
+            return ids;
+        int min = keys[0];
+        int max = keys[0];
+        for (int i = 1; i < n; ++i) {
+            if (keys[i] < min)
+                min = keys[i];
+            else if (keys[i] > max)
+                max = keys[i];
+        }
+        // Digits are taken from key - min, which as an unsigned int holds the full spread
+        int bits = 32 - Integer.numberOfLeadingZeros(max - min);
+        if (bits == 0) {
+            for (int i = 0; i < n; ++i)
+                ids[i] = i;
+            return ids;
+        }
+        boolean parallel = pool != null && n >= PARALLEL_THRESHOLD;
+        int passes = parallel ? (bits + 7) / 8 : bits <= 16 ? 1 : (bits + 10) / 11;
+        int width = (bits + passes - 1) / passes;
+
+        // The first pass reads the keys in index order and the last pass only
+        // needs to write the ids.  Passes in between alternate between two buffers.
+        int[] srcKeys = keys, srcIds = null;
+        int[] keys1 = passes > 1 ? new int[n] : null, ids1 = passes > 1 ? new int[n] : null;
+        int[] keys2 = passes > 2 ? new int[n] : null, ids2 = passes > 2 ? new int[n] : null;
+        for (int p = 0; p < passes; ++p) {
+            boolean last = p == passes - 1;
+            int[] dstKeys = last ? null : (srcKeys == keys1 ? keys2 : keys1);
+            int[] dstIds = last ? ids : (srcIds == ids1 ? ids2 : ids1);
+            Pass pass = new Pass(srcKeys, srcIds, dstKeys, dstIds, n, min, p * width, (1 << width) - 1);
+            if (!parallel)
+                pass.run(1);
+            else
+                pass.run(pool, Math.min(4 * pool.getParallelism(), n / CHUNK_SIZE));
+            srcKeys = dstKeys;
+            srcIds = dstIds;
+        }
+        return ids;
+    }
+
+    // One pass of the sort, distributing the keys on the digit at shift
+    private static class Pass {
+        final int[] srcKeys, srcIds, dstKeys, dstIds;
+        final int n, min, shift, mask;
+        int chunks;
+        int[][] counts;  // counts[c][d] is the number of keys in chunk c with digit d
+
+        Pass(int[] srcKeys, int[] srcIds, int[] dstKeys, int[] dstIds, int n, int min, int shift, int mask) {
+            this.srcKeys = srcKeys;
+            this.srcIds = srcIds;
+            this.dstKeys = dstKeys;
+            this.dstIds = dstIds;
+            this.n = n;
+            this.min = min;
+            this.shift = shift;
+            this.mask = mask;
+        }
+
+        // Runs the pass in the calling thread
+        void run(int chunks) {
+            init(chunks);
+            count(0);
+            offsets();
+            distribute(0);
+        }
+
+        // Runs the pass with each chunk counted and distributed by a separate task
+        void run(ForkJoinPool pool, int chunks) {
+            init(Math.max(chunks, 1));
+            pool.invoke(new ChunkTask(this, 0, this.chunks, false));
+            offsets();
+            pool.invoke(new ChunkTask(this, 0, this.chunks, true));
+        }
+
+        private void init(int chunks) {
+            this.chunks = chunks;
+            counts = new int[chunks][mask + 1];
+        }
+
+        private int from(int chunk) { return (int) ((long) n * chunk / chunks); }
+
+        void count(int chunk) {
+            int[] count = counts[chunk];
+            for (int i = from(chunk), to = from(chunk + 1); i < to; ++i)
+                ++count[((srcKeys[i] - min) >>> shift) & mask];
+        }
+
+        // Replaces the counts by the position of the first key of each digit in each
+        // chunk.  Keys with the same digit go in chunk order so the sort is stable.
+        void offsets() {
+            int position = 0;
+            for (int d = 0; d <= mask; ++d)
+                for (int c = 0; c < chunks; ++c) {
+                    int count = counts[c][d];
+                    counts[c][d] = position;
+                    position += count;
+                }
+        }
+
+        void distribute(int chunk) {
+            int[] offset = counts[chunk];
+            for (int i = from(chunk), to = from(chunk + 1); i < to; ++i) {
+                int key = srcKeys[i];
+                int j = offset[((key - min) >>> shift) & mask]++;
+                if (dstKeys != null)
+                    dstKeys[j] = key;
+                dstIds[j] = srcIds == null ? i : srcIds[i];
+            }
+        }
+    }
+
+    // Counts or distributes chunks lo to hi - 1 of a pass, splitting them between tasks
+    private static class ChunkTask extends RecursiveAction {
+        private final Pass pass;
+        private final int lo, hi;
+        private final boolean distribute;
+
+        ChunkTask(Pass pass, int lo, int hi, boolean distribute) {
+            this.pass = pass;
+            this.lo = lo;
+            this.hi = hi;
+            this.distribute = distribute;
+        }
+
+        protected void compute() {
+            if (hi - lo == 1) {
+                if (distribute)
+                    pass.distribute(lo);
+                else
+                    pass.count(lo);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkTask(pass, lo, mid, distribute), new ChunkTask(pass, mid, hi, distribute));
+            }
+        }
+    }
+}
+
+/**
+ * Priority queue of int keys and int values that does not box either.
+ */
+interface IntPriorityQueue {
+    /** Returns the number of entries in the queue */
+    int size();
+    /** Returns whether the queue is empty */
+    boolean isEmpty();
+    /** Removes all entries */
+    void clear();
+    /** Returns but does not remove the minimum key */
+    int minKey() throws EmptyPriorityQueueException;
+    /** Returns but does not remove the value of an entry with minimum key */
+    int minValue() throws EmptyPriorityQueueException;
+    /** Inserts a key-value pair */
+    void insert(int key, int value);
+    /**
+     * Inserts keys[i] with value values[i] for i from from to to - 1.  If values
+     * is null, the value of each entry is its index i.
+     */
+    void insertAll(int[] keys, int[] values, int from, int to);
+    /** Removes an entry with minimum key and returns its value */
+    int removeMinValue() throws EmptyPriorityQueueException;
+    /**
+     * Removes the min(k, size()) entries with the smallest keys, storing their keys
+     * and values in increasing order in keysOut and valuesOut (either of which may
+     * be null), and returns the number removed.
+     */
+    int removeMin(int k, int[] keysOut, int[] valuesOut);
+}
+
+/**
+ * Priority queue of int keys and int values held in parallel arrays as a
+ * complete d-ary tree.  Entries with equal keys are removed in order of value,
+ * so the order of removal does not depend on the arity of the tree.
+ * The primitive methods do not allocate once the arrays have grown to the
+ * largest size needed, whereas the Entry methods of PriorityQueue box the
+ * key and value of every entry.
+ */
+class IntHeapPriorityQueue implements PriorityQueue<Integer, Integer>, IntPriorityQueue {
+    static final int DEFAULT_ARITY = 4;
+    private int[] keys;    // keys[i] and values[i] are the entry at position i
+    private int[] values;  // the root is at position 0
+    private int size;
+    private final int arity;  // number of children of each node
+
+    /** Creates an empty binary heap */
+    public IntHeapPriorityQueue() {
+        this(16, 2);
+    }
+
+    /** Creates an empty heap with the given initial capacity and number of children per node */
+    public IntHeapPriorityQueue(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Arity must be at least 2");
+        capacity = Math.max(capacity, 1);
+        keys = new int[capacity];
+        values = new int[capacity];
+        this.arity = arity;
+    }
+
+    /** Returns the number of entries in the heap */
+    public int size() { return size; }
+    /** Returns whether the heap is empty */
+    public boolean isEmpty() { return size == 0; }
+    /** Removes all entries without releasing the arrays */
+    public void clear() { size = 0; }
+
+    /** Returns but does not remove the minimum key */
+    public int minKey() throws EmptyPriorityQueueException {
+        if (size == 0)
+            throw new EmptyPriorityQueueException("Priority queue is empty");
+        return keys[0];
+    }
+
+    /** Returns but does not remove the value of an entry with minimum key */
+    public int minValue() throws EmptyPriorityQueueException {
+        if (size == 0)
+            throw new EmptyPriorityQueueException("Priority queue is empty");
+        return values[0];
+    }
+
+    /** Inserts a key-value pair */
+    public void insert(int key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        upHeap(size++, key, value);
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    Inserting k entries one at a time into a heap of n entries takes
+    O(k log(n + k)).  If k is larger than n the entries are instead appended
+    and the heap is rebuilt bottom-up, moving each internal node down from the
+    last one back to the root.  Half of the nodes are leaves and need no work,
+    and in general a node at height h moves down at most h levels, so the
+    rebuild is O(n + k).
+    */
+    /**
+     * Inserts keys[i] with value values[i] for i from from to to - 1.  If values
+     * is null, the value of each entry is its index i.
+     */
+    public void insertAll(int[] keys, int[] values, int from, int to) {
+        int count = to - from;
+        if (count <= 0)
+            return;
+        if (size + count > this.keys.length) {
+            int capacity = Math.max(size + count, 2 * size);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        if (count <= size) {
+            for (int i = from; i < to; ++i)
+                upHeap(size++, keys[i], values == null ? i : values[i]);
+            return;
+        }
+        System.arraycopy(keys, from, this.keys, size, count);
+        if (values == null)
+            for (int i = 0; i < count; ++i)
+                this.values[size + i] = from + i;
+        else
+            System.arraycopy(values, from, this.values, size, count);
+        size += count;
+        for (int i = (size - 2) / arity; i >= 0; --i)
+            downHeap(i, this.keys[i], this.values[i]);
+    }
+
+    /** Removes an entry with minimum key and returns its value */
+    public int removeMinValue() throws EmptyPriorityQueueException {
+        if (size == 0)
+            throw new EmptyPriorityQueueException("Priority queue is empty");
+        int min = values[0];
+        if (--size > 0)
+            downHeap(0, keys[size], values[size]);
+        return min;
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    Removing k entries one at a time moves the last entry down from the root k
+    times, comparing it with the smallest child at every level.  Instead, a
+    small batch moves the hole left at the root down to a leaf along the
+    smallest children without comparing it with the last entry, and only then
+    puts the last entry in the hole and bubbles it up, which is usually at most
+    a level or two.  This saves about a comparison per level per entry.
+    A batch with k log n >= n is selected without disturbing the heap: the k
+    smallest entries are the first k removed from a second small heap of
+    candidate positions, which starts with the root and gains the children of
+    each position removed from it.  That takes O(k log k).  The selected
+    entries are then squeezed out of the arrays and the heap is rebuilt
+    bottom-up in O(n), rather than spending O(k log n) moving entries down.
+    */
+    /**
+     * Removes the min(k, size()) entries with the smallest keys, storing their keys
+     * and values in increasing order in keysOut and valuesOut (either of which may
+     * be null), and returns the number removed.  The entries are the same as k
+     * calls of removeMinValue() would remove.
+     */
+    public int removeMin(int k, int[] keysOut, int[] valuesOut) {
+        int count = Math.min(k, size);
+        if (count <= 0)
+            return 0;
+        if (keysOut == null && valuesOut == null && count == size) {
+            size = 0;
+        } else if ((long) count * (32 - Integer.numberOfLeadingZeros(size)) >= size) {
+            selectMin(count, keysOut, valuesOut);
+        } else {
+            for (int j = 0; j < count; ++j) {
+                if (keysOut != null)
+                    keysOut[j] = keys[0];
+                if (valuesOut != null)
+                    valuesOut[j] = values[0];
+                removeRoot();
+            }
+        }
+        return count;
+    }
+
+    // Removes the root by moving the hole down to a leaf and filling it with the last entry
+    private void removeRoot() {
+        int key = keys[--size];
+        int value = values[size];
+        if (size == 0)
+            return;
+        int i = 0;
+        int child;
+        while ((child = arity * i + 1) < size) {
+            int last = Math.min(child + arity, size);
+            int smallest = child;
+            for (int c = child + 1; c < last; ++c)
+                if (less(keys[c], values[c], keys[smallest], values[smallest]))
+                    smallest = c;
+            keys[i] = keys[smallest];
+            values[i] = values[smallest];
+            i = smallest;
+        }
+        upHeap(i, key, value);
+    }
+
+    private int[] candidates = new int[0];  // heap of positions that may hold the next smallest entry
+    private int[] selected = new int[0];    // selected[i] == epoch if position i has been selected
+    private int epoch;
+
+    // Removes the count smallest entries by selecting them and rebuilding the heap
+    private void selectMin(int count, int[] keysOut, int[] valuesOut) {
+        int most = Math.min(size, count * (arity - 1) + 1);
+        if (candidates.length < most)
+            candidates = new int[Math.max(most, 2 * candidates.length)];
+        if (selected.length < size || epoch == Integer.MAX_VALUE) {
+            selected = new int[keys.length];
+            epoch = 0;
+        }
+        ++epoch;
+
+        // Take the smallest candidate and replace it by its children
+        int n = 1;
+        candidates[0] = 0;
+        for (int j = 0; j < count; ++j) {
+            int i = candidates[0];
+            if (keysOut != null)
+                keysOut[j] = keys[i];
+            if (valuesOut != null)
+                valuesOut[j] = values[i];
+            selected[i] = epoch;
+            candidates[0] = candidates[--n];
+            downCandidates(0, n);
+            for (int c = arity * i + 1, last = Math.min(c + arity, size); c < last; ++c) {
+                candidates[n] = c;
+                upCandidates(n++);
+            }
+        }
+
+        // Squeeze out the selected entries and rebuild the heap
+        int w = 0;
+        for (int i = 0; i < size; ++i)
+            if (selected[i] != epoch) {
+                keys[w] = keys[i];
+                values[w++] = values[i];
+            }
+        size = w;
+        for (int i = (size - 2) / arity; i >= 0; --i)
+            downHeap(i, keys[i], values[i]);
+    }
+
+    // Moves candidate j up the binary heap of candidates
+    private void upCandidates(int j) {
+        int c = candidates[j];
+        while (j > 0) {
+            int parent = (j - 1) / 2;
+            int p = candidates[parent];
+            if (!less(keys[c], values[c], keys[p], values[p]))
+                break;
+            candidates[j] = p;
+            j = parent;
+        }
+        candidates[j] = c;
+    }
+
+    // Moves candidate j down the binary heap of the first n candidates
+    private void downCandidates(int j, int n) {
+        if (j >= n)
+            return;
+        int c = candidates[j];
+        int child;
+        while ((child = 2 * j + 1) < n) {
+            int s = candidates[child];
+            if (child + 1 < n) {
+                int r = candidates[child + 1];
+                if (less(keys[r], values[r], keys[s], values[s])) {
+                    s = r;
+                    ++child;
+                }
+            }
+            if (!less(keys[s], values[s], keys[c], values[c]))
+                break;
+            candidates[j] = s;
+            j = child;
+        }
+        candidates[j] = c;
+    }
+
+    // Methods of PriorityQueue, each of which creates a new Entry
+    public Entry<Integer, Integer> min() throws EmptyPriorityQueueException {
+        return new IntEntry(minKey(), values[0]);
+    }
+
+    public Entry<Integer, Integer> insert(Integer key, Integer value) throws InvalidKeyException {
+        if (key == null)
+            throw new InvalidKeyException("Invalid key");
+        insert(key.intValue(), value.intValue());
+        return new IntEntry(key, value);
+    }
+
+    public Entry<Integer, Integer> removeMin() throws EmptyPriorityQueueException {
+        int key = minKey();
+        return new IntEntry(key, removeMinValue());
+    }
+
+    // Returns whether the entry (key1, value1) is removed before (key2, value2)
+    private static boolean less(int key1, int value1, int key2, int value2) {
+        return key1 < key2 || (key1 == key2 && value1 < value2);
+    }
+
+    // Moves the hole at position i up the tree until the entry can be placed in it
+    private void upHeap(int i, int key, int value) {
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            if (!less(key, value, keys[parent], values[parent]))
+                break;
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    // Moves the hole at position i down the tree until the entry can be placed in it
+    private void downHeap(int i, int key, int value) {
+        int child;
+        while ((child = arity * i + 1) < size) {
+            // Find the smallest of the children
+            int last = Math.min(child + arity, size);
+            int smallest = child;
+            for (int c = child + 1; c < last; ++c)
+                if (less(keys[c], values[c], keys[smallest], values[smallest]))
+                    smallest = c;
+            if (!less(keys[smallest], values[smallest], key, value))
+                break;
+            keys[i] = keys[smallest];
+            values[i] = values[smallest];
+            i = smallest;
         }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /** Text visualization for debugging purposes */
+    public String toString() {
+        String s = "[";
+        for (int i = 0; i < size; ++i)
+            s += (i > 0 ? ", " : "") + "(" + keys[i] + "," + values[i] + ")";
+        return s + "]";
+    }
+
+    // Entry returned by the methods of PriorityQueue
+    static class IntEntry implements Entry<Integer, Integer> {
+        private final int key, value;
+        IntEntry(int key, int value) { this.key = key; this.value = value; }
+        public Integer getKey() { return key; }
+        public Integer getValue() { return value; }
+        public String toString() { return "(" + key + "," + value + ")"; }
+    }
+}
+
+/**
+ * Priority queue of int keys whose entries all lie within a window of span
+ * consecutive keys, such as the deadlines of the tasks waiting at one time
+ * when no task has a deadline more than span after its release.  There is a
+ * bucket for each key in the window, used circularly as the window moves up,
+ * and each bucket is a first in first out list.  Entries with equal keys are
+ * therefore removed in the order they were inserted, which is the order of
+ * value when values are inserted in increasing order.
+ */
+class BucketPriorityQueue implements IntPriorityQueue {
+    static final int MAX_SPAN = 1 << 20;  // largest window worth allocating buckets for
+    private final int span;
+    private final int[] head;       // first node in each bucket
+    private final int[] tail;       // last node in each bucket
+    private final int[] bucketKey;  // key of the entries in each bucket
+    private final long[] occupied;  // bit b is set if bucket b is not empty
+    private int[] next;             // next node in the same bucket, or in the free list
+    private int[] value;            // value of each node
+    private int free = -1;          // first free node
+    private int used;               // nodes that have ever been used
+    private int size;
+    private int low;   // no key is less than low
+    private int high;  // no key is greater than high
+
+    /** Creates an empty queue for keys within a window of span, with the given initial capacity */
+    public BucketPriorityQueue(int span, int capacity) {
+        if (span < 1 || span > MAX_SPAN)
+            throw new IllegalArgumentException("Span must be from 1 to " + MAX_SPAN);
+        this.span = span;
+        head = new int[span];
+        tail = new int[span];
+        bucketKey = new int[span];
+        occupied = new long[(span + 63) >>> 6];
+        capacity = Math.max(capacity, 1);
+        next = new int[capacity];
+        value = new int[capacity];
+    }
+
+    /** Returns the number of entries in the queue */
+    public int size() { return size; }
+    /** Returns whether the queue is empty */
+    public boolean isEmpty() { return size == 0; }
+
+    /** Removes all entries without releasing the arrays */
+    public void clear() {
+        Arrays.fill(occupied, 0);
+        free = -1;
+        used = 0;
+        size = 0;
+    }
 
-        // Read the input file one token (word) at a time whilst verifying that
-        // each task has a release and deadline that are both integers.
-        while (s.hasNext()) {
-            name = s.next();
-            try {    
-                release = Integer.parseInt(s.next());
-                deadline = Integer.parseInt(s.next());
-            } catch (NoSuchElementException ex) {
-                System.out.println("Task attribute data does not follow required format.");
-                return;            
-            } catch (NumberFormatException ex) {
-                System.out.println("Task attribute data does not follow required format.");
-                return;            
-            }                                
-            if (release < 0 || deadline <= 0 || deadline <= release) {
-                System.out.println("Task attribute data does not follow required format.");
-                return;                            
+    /** Returns but does not remove the minimum key */
+    public int minKey() throws EmptyPriorityQueueException {
+        return bucketKey[minBucket()];
+    }
+
+    /** Returns but does not remove the value of an entry with minimum key */
+    public int minValue() throws EmptyPriorityQueueException {
+        return value[head[minBucket()]];
+    }
+
+    /**
+     * Inserts a key-value pair.
+     * @throws IllegalArgumentException if the key is not within span of every key in the queue
+     */
+    public void insert(int key, int value) {
+        if (size == 0) {
+            low = key;
+            high = key;
+        } else {
+            if ((long) Math.max(high, key) - Math.min(low, key) >= span) {
+                // low and high may be out of date, so find the keys in the queue
+                low = bucketKey[minBucket()];
+                high = bucketKey[maxBucket()];
+                if ((long) Math.max(high, key) - Math.min(low, key) >= span)
+                    throw new IllegalArgumentException("Key " + key + " is outside the window of the queue");
             }
-            // Create a new instance of Task and add to NodePositionList
-            tasks.addLast(new Task(name, release, deadline));
-        }            
-        s.close();
-                
-        // Mergesort the NodePositionList of tasks by release time
-        Comparator<Task> c = new DefaultComparator<>();
-        Sort.mergeSort(tasks, c);
-                
-        // Create a HeapPriorityQueue with key of deadline and value of task. 
-        HeapPriorityQueue<Integer, Task> heapPriorityQueue = new HeapPriorityQueue();
-        Integer time = 0;
-        Task task = null;
-        String output = "";
-        Entry<Integer, Task> queueEntry;
-        
-        Iterator<Task> taskIterator = tasks.iterator();
-        if (taskIterator.hasNext())
-            task = taskIterator.next();
-                
-        // For each time, put all ready tasks into the priority queue, take the m tasks 
-        // with lowest deadlines out of the queue, and check if a deadline has been missed.
-        do {
-            // Insert any tasks released at current time into the priority queue
-            while (task != null && Objects.equals(task.release, time)) {
-                heapPriorityQueue.insert(task.deadline, task);
-                task = null;
-                if (!taskIterator.hasNext())
-                    break;
-                else
-                    task = taskIterator.next();
-            }            
-            
-            // Take a number of tasks out of the queue equal to the number of cores
-            // (provided that sufficient tasks are released).
-            output += "\n" + "Time : " + time + "\n";  /// *** FOR TESTING ONLY
-            for (int i = 0; i < m; ++i) {
-                if (!heapPriorityQueue.isEmpty()) {
-                    queueEntry = heapPriorityQueue.removeMin();
-                    output += queueEntry.getValue().name + " " + queueEntry.getValue().release
-                            + " " + queueEntry.getValue().deadline // *** FOR TESTING ONLY
-                            + "\n";
-                }
+            low = Math.min(low, key);
+            high = Math.max(high, key);
+        }
+
+        int node;
+        if (free >= 0) {
+            node = free;
+            free = next[node];
+        } else {
+            if (used == next.length) {
+                next = Arrays.copyOf(next, 2 * used);
+                this.value = Arrays.copyOf(this.value, 2 * used);
             }
-            
-            ++time;
-            // If the task at the front of the queue (i.e. it has not been started) has a deadline
-            // of or before the new time, then its deadline has been missed.
-            if (!heapPriorityQueue.isEmpty() && heapPriorityQueue.min().getKey() <= time) {
-                System.out.println("Cannot be scheduled");
-                return;
-            }                          
-        
-        // Stop when there are no more tasks to be added to the queue (ie task == null)
-        // and all tasks have been removed from the queue.
-        } while (!(task == null && heapPriorityQueue.isEmpty()));
-        
-        // Create output file and give warning if it already exists.
-        if (new File(file2).isFile())
-            System.out.println(file2 + " already exists and will be overwritten.");
-        // Print schedule to file.
-        FileWriter writer = null;
-        try {
-            writer = new FileWriter(file2 , false);
-        } catch (IOException ex) {
-            System.out.println(ex);
+            node = used++;
         }
-        PrintWriter printToFile = new PrintWriter(writer);
-        printToFile.println(output);
-        System.out.println(output);  // *** FOR TESTING ONLY
-        printToFile.close();
+        this.value[node] = value;
+        next[node] = -1;
+
+        int b = bucket(key);
+        if ((occupied[b >>> 6] & (1L << b)) == 0) {
+            occupied[b >>> 6] |= 1L << b;
+            bucketKey[b] = key;
+            head[b] = node;
+        } else
+            next[tail[b]] = node;
+        tail[b] = node;
+        ++size;
     }
-    
-    // *** FOR TESTING ONLY
-    public static void main(String[] args) {
-            TaskScheduler.scheduler("jaketest1.txt", "feasibleschedule1.txt", 3);
+
+    /** Inserts keys[i] with value values[i], or i if values is null, for i from from to to - 1 */
+    public void insertAll(int[] keys, int[] values, int from, int to) {
+        for (int i = from; i < to; ++i)
+            insert(keys[i], values == null ? i : values[i]);
+    }
+
+    /** Removes an entry with minimum key and returns its value */
+    public int removeMinValue() throws EmptyPriorityQueueException {
+        return removeFirst(minBucket());
+    }
+
+    /**
+     * Removes the min(k, size()) entries with the smallest keys, storing their keys
+     * and values in increasing order in keysOut and valuesOut (either of which may
+     * be null), and returns the number removed.
+     */
+    public int removeMin(int k, int[] keysOut, int[] valuesOut) {
+        int count = Math.min(k, size);
+        for (int j = 0; j < count; ++j) {
+            int b = minBucket();
+            if (keysOut != null)
+                keysOut[j] = bucketKey[b];
+            int v = removeFirst(b);
+            if (valuesOut != null)
+                valuesOut[j] = v;
+        }
+        return Math.max(count, 0);
+    }
+
+    // Removes the first node of bucket b and returns its value
+    private int removeFirst(int b) {
+        int node = head[b];
+        head[b] = next[node];
+        if (head[b] < 0)
+            occupied[b >>> 6] &= ~(1L << b);
+        next[node] = free;
+        free = node;
+        --size;
+        return value[node];
+    }
+
+    /* TIME COMPLEXITY ANALYSIS
+    The smallest key is found by scanning the occupied bits from the bucket of
+    low, 64 buckets per word, and low is then moved up to it, so buckets that
+    have been passed over are not scanned again until a smaller key is
+    inserted.  When keys are removed in roughly increasing order, as deadlines
+    are when the clock moves forward, the scanning over a whole run is O(n +
+    span / 64) and insert and removal are O(1) amortized.  A single search is at
+    worst O(span / 64).
+    */
+    // Returns the bucket holding the smallest key, moving low up to that key
+    private int minBucket() throws EmptyPriorityQueueException {
+        if (size == 0)
+            throw new EmptyPriorityQueueException("Priority queue is empty");
+        int start = bucket(low);
+        int b = nextOccupied(start, occupied.length);
+        if (b < 0)
+            b = nextOccupied(0, (start >>> 6) + 1);
+        low = bucketKey[b];
+        return b;
+    }
+
+    // Returns the bucket holding the largest key
+    private int maxBucket() {
+        int start = bucket(low);
+        int b = start > 0 ? previousOccupied(start - 1, 0) : -1;
+        if (b < 0)
+            b = previousOccupied(span - 1, start >>> 6);
+        return b;
+    }
+
+    // Returns the last occupied bucket at or before b from word end, or -1 if there is none
+    private int previousOccupied(int b, int end) {
+        int w = b >>> 6;
+        long bits = occupied[w] & (-1L >>> (63 - (b & 63)));
+        while (bits == 0) {
+            if (--w < end)
+                return -1;
+            bits = occupied[w];
+        }
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    // Returns the first occupied bucket from b before word end, or -1 if there is none
+    private int nextOccupied(int b, int end) {
+        int w = b >>> 6;
+        long bits = occupied[w] & (-1L << b);
+        while (bits == 0) {
+            if (++w >= end)
+                return -1;
+            bits = occupied[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // Returns the bucket of a key
+    private int bucket(int key) {
+        int b = key % span;
+        return b < 0 ? b + span : b;
     }
 }
 
-// Class to hold each task
-class Task implements Comparable {
-    String name;
-    Integer release;
-    Integer deadline;
-    Task (String name, Integer release, Integer deadline) {
-        this.name = name;
-        this.release = release;
-        this.deadline = deadline;
+/**
+ * Realization of a PositionList with its nodes held in parallel arrays
+ * rather than as DNode objects.  Node i stores element elements[i] and
+ * lies between nodes prev[i] and next[i]; node 0 is the header and node
+ * 1 the trailer.  Removed nodes are kept on a free list threaded through
+ * next and are reused by later insertions.  A position is a small object
+ * naming a node and the version of that node when the position was made,
+ * so the position of a removed element stays invalid after its node is
+ * reused.  Insertions and iteration over the elements create no objects
+ * once the arrays are large enough.
+ */
+class ArrayPositionList<E> implements PositionList<E> {
+  protected static final int HEADER = 0, TRAILER = 1;
+  protected int[] prev, next;	// neighbours of each node
+  protected int[] version;	// incremented each time a node is removed
+  protected Object[] elements;	// element stored at each node
+  protected int numElts;	// number of elements in the list
+  protected int used = 2;	// number of nodes that have ever been used
+  protected int free = -1;	// first node of the free list, or -1
+  /** Position naming a node of an ArrayPositionList */
+  protected static class IndexPosition<E> implements Position<E> {
+    protected final ArrayPositionList<E> list;
+    protected final int index, version;
+    public IndexPosition(ArrayPositionList<E> list, int index) {
+      this.list = list;
+      this.index = index;
+      this.version = list.version[index];
+    }
+    public E element() throws InvalidPositionException {
+      if (list.version[index] != version)
+	throw new InvalidPositionException("Position is not in a list!");
+      return list.elementAt(index);
+    }
+  }
+  /** Constructor that creates an empty list; O(1) time */
+  public ArrayPositionList() {
+    this(16);
+  }
+  /** Constructor that creates an empty list with room for capacity
+    * elements; O(capacity) time */
+  public ArrayPositionList(int capacity) {
+    capacity = Math.max(capacity, 1) + 2;
+    prev = new int[capacity];
+    next = new int[capacity];
+    version = new int[capacity];
+    elements = new Object[capacity];
+    next[HEADER] = TRAILER;
+    prev[TRAILER] = HEADER;
+  }
+  /** Checks if position is valid for this list and returns its node;
+    * O(1) time */
+  protected int checkPosition(Position<E> p) throws InvalidPositionException {
+    if (p == null)
+      throw new InvalidPositionException
+	("Null position passed to NodeList");
+    if (!(p instanceof IndexPosition) || ((IndexPosition<E>) p).list != this)
+      throw new InvalidPositionException
+	("Position is of wrong type for this list");
+    IndexPosition<E> ip = (IndexPosition<E>) p;
+    if (version[ip.index] != ip.version)
+      throw new InvalidPositionException
+	("Position does not belong to a valid NodeList");
+    return ip.index;
+  }
+  @SuppressWarnings("unchecked")
+  protected E elementAt(int i) { return (E) elements[i]; }
+  /** Returns the number of elements in the list;  O(1) time */
+  public int size() { return numElts; }
+  /** Returns whether the list is empty;  O(1) time  */
+  public boolean isEmpty() { return (numElts == 0); }
+  /** Returns the first position in the list; O(1) time */
+  public Position<E> first()
+      throws EmptyListException {
+    if (isEmpty())
+      throw new EmptyListException("List is empty");
+    return new IndexPosition<E>(this, next[HEADER]);
+  }
+  /** Returns the last position in the list; O(1) time */
+  public Position<E> last()
+      throws EmptyListException {
+    if (isEmpty())
+      throw new EmptyListException("List is empty");
+    return new IndexPosition<E>(this, prev[TRAILER]);
+  }
+  /** Returns the position before the given one; O(1) time */
+  public Position<E> prev(Position<E> p)
+      throws InvalidPositionException, BoundaryViolationException {
+    int v = prev[checkPosition(p)];
+    if (v == HEADER)
+      throw new BoundaryViolationException
+	("Cannot advance past the beginning of the list");
+    return new IndexPosition<E>(this, v);
+  }
+  /** Returns the position after the given one; O(1) time */
+  public Position<E> next(Position<E> p)
+      throws InvalidPositionException, BoundaryViolationException {
+    int v = next[checkPosition(p)];
+    if (v == TRAILER)
+      throw new BoundaryViolationException
+	("Cannot advance past the end of the list");
+    return new IndexPosition<E>(this, v);
+  }
+  /** Links a new node holding element between nodes u and w;
+    * O(1) amortized time */
+  protected void link(int u, int w, E element) {
+    int v;
+    if (free >= 0) {
+      v = free;
+      free = next[v];
+    } else {
+      if (used == elements.length) {
+	int capacity = 2 * used;
+	prev = Arrays.copyOf(prev, capacity);
+	next = Arrays.copyOf(next, capacity);
+	version = Arrays.copyOf(version, capacity);
+	elements = Arrays.copyOf(elements, capacity);
+      }
+      v = used++;
     }
+    elements[v] = element;
+    prev[v] = u;
+    next[v] = w;
+    next[u] = v;
+    prev[w] = v;
+    numElts++;
+  }
+  /** Insert the given element before the given position;
+    * O(1) time  */
+  public void addBefore(Position<E> p, E element)
+      throws InvalidPositionException {
+    int v = checkPosition(p);
+    link(prev[v], v, element);
+  }
+  /** Insert the given element after the given position;
+    * O(1) time  */
+  public void addAfter(Position<E> p, E element)
+      throws InvalidPositionException {
+    int v = checkPosition(p);
+    link(v, next[v], element);
+  }
+  /** Insert the given element at the beginning of the list;
+    * O(1) time  */
+  public void addFirst(E element) {
+    link(HEADER, next[HEADER], element);
+  }
+  /** Insert the given element at the end of the list;
+    * O(1) time  */
+  public void addLast(E element) {
+    link(prev[TRAILER], TRAILER, element);
+  }
+  /**Remove the given position from the list; O(1) time */
+  public E remove(Position<E> p)
+      throws InvalidPositionException {
+    int v = checkPosition(p);
+    numElts--;
+    next[prev[v]] = next[v];
+    prev[next[v]] = prev[v];
+    E vElem = elementAt(v);
+    // invalidate positions of the node and put it on the free list
+    elements[v] = null;
+    version[v]++;
+    next[v] = free;
+    free = v;
+    return vElem;
+  }
+  /** Replace the element at the given position with the new element
+    * and return the old element; O(1) time  */
+  public E set(Position<E> p, E element)
+      throws InvalidPositionException {
+    int v = checkPosition(p);
+    E oldElt = elementAt(v);
+    elements[v] = element;
+    return oldElt;
+  }
+  /** Returns an iterator of all the elements in the list, which walks
+    * the nodes without creating positions. */
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      int cursor = next[HEADER];
+      public boolean hasNext() { return cursor != TRAILER; }
+      public E next() throws NoSuchElementException {
+	if (cursor == TRAILER)
+	  throw new NoSuchElementException("No next element");
+	E toReturn = elementAt(cursor);
+	cursor = ArrayPositionList.this.next[cursor];
+	return toReturn;
+      }
+      public void remove() throws UnsupportedOperationException {
+	throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+  /** Returns an iterable collection of all the nodes in the list. */
+  public Iterable<Position<E>> positions() {
+    PositionList<Position<E>> P = new ArrayPositionList<Position<E>>(numElts);
+    for (int v = next[HEADER]; v != TRAILER; v = next[v])
+      P.addLast(new IndexPosition<E>(this, v));
+    return P;
+  }
+  /** Returns whether a position is the first one;  O(1) time */
+  public boolean isFirst(Position<E> p)
+    throws InvalidPositionException {
+    return prev[checkPosition(p)] == HEADER;
+  }
+  /** Returns whether a position is the last one;  O(1) time */
+  public boolean isLast(Position<E> p)
+      throws InvalidPositionException {
+    return next[checkPosition(p)] == TRAILER;
+  }
+  /** Swap the elements of two give positions;  O(1) time */
+  public void swapElements(Position<E> a, Position<E> b)
+      throws InvalidPositionException {
+    int pA = checkPosition(a);
+    int pB = checkPosition(b);
+    Object temp = elements[pA];
+    elements[pA] = elements[pB];
+    elements[pB] = temp;
+  }
+  /** Returns a textual representation of the list */
+  public String toString() {
+    return NodePositionList.toString(this);
+  }
+}
 
-    // Compare release times
-    @Override
-    public int compareTo(Object task) {
-        if (this.release > ((Task) task).release)
-            return 1;
-        else
-            return -1;
+/**
+  * Thread-safe priority queue for many producers and consumers, built on a
+  * lock-free skip list.  Insertions and removals are O(log n) expected and
+  * never block.  Entries with equal keys are removed in the order they were
+  * inserted, using a sequence number as a tie-breaker so that the skip list
+  * can hold equal keys.  size() is exact when no operations are in progress.
+  */
+class ConcurrentSkipListPriorityQueue<K,V> implements PriorityQueue<K,V> {
+  protected ConcurrentSkipListSet<SequencedEntry<K,V>> list;	// entries in key order
+  protected Comparator<K> comp;	// comparator for the keys
+  protected AtomicLong sequence = new AtomicLong();	// number of the next entry
+  protected AtomicInteger count = new AtomicInteger();	// number of entries
+  /** Inner class for entries numbered in order of insertion. */
+  protected static class SequencedEntry<K,V> implements Entry<K,V> {
+    protected final K key;
+    protected final V value;
+    protected final long seq;
+    public SequencedEntry(K k, V v, long s) { key = k; value = v; seq = s; }
+    public K getKey() { return key; }
+    public V getValue() { return value; }
+    public String toString() { return "(" + key  + "," + value + ")"; }
+  }
+  /** Creates an empty queue with the default comparator */
+  public ConcurrentSkipListPriorityQueue() {
+    this(new DefaultComparator<K>());
+  }
+  /** Creates an empty queue with the given comparator */
+  public ConcurrentSkipListPriorityQueue(Comparator<K> c) {
+    comp = c;
+    list = new ConcurrentSkipListSet<SequencedEntry<K,V>>(
+      new Comparator<SequencedEntry<K,V>>() {
+        public int compare(SequencedEntry<K,V> a, SequencedEntry<K,V> b) {
+          int c = comp.compare(a.key, b.key);
+          if (c != 0)
+            return c;
+          return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+        }
+      });
+  }
+  /** Returns the number of entries in the queue */
+  public int size() { return Math.max(count.get(), 0); }
+  /** Returns whether the queue is empty */
+  public boolean isEmpty() { return size() == 0; }
+  /** Returns but does not remove an entry with minimum key */
+  public Entry<K,V> min() throws EmptyPriorityQueueException {
+    try {
+      return list.first();
+    }
+    catch (NoSuchElementException e) {
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+    }
+  }
+  /** Inserts a key-value pair and returns the entry created */
+  public Entry<K,V> insert(K k, V x) throws InvalidKeyException {
+    checkKey(k);  // may throw an InvalidKeyException
+    SequencedEntry<K,V> entry =
+      new SequencedEntry<K,V>(k, x, sequence.getAndIncrement());
+    list.add(entry);
+    count.incrementAndGet();
+    return entry;
+  }
+  /** Removes and returns an entry with minimum key */
+  public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
+    SequencedEntry<K,V> min = list.pollFirst();
+    if (min == null)
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+    count.decrementAndGet();
+    return min;
+  }
+  /** Determines whether a given key is valid */
+  protected void checkKey(K key) throws InvalidKeyException {
+    try {
+      comp.compare(key,key);
+    }
+    catch(Exception e) {
+      throw new InvalidKeyException("Invalid key");
     }
+  }
 }
 
 
@@ -227,6 +2673,123 @@ class Sort {
       in.addLast(in2.remove(in2.first()));
   }
   //end#fragment merge
+
+  /** Lists of at most this many elements are sorted serially. */
+  public static final int DEFAULT_CUTOFF = 1 << 13;
+
+  /**
+   * Sorts the elements of list in nondecreasing order according to
+   * comparator c, using a merge-sort whose recursive calls on sublists
+   * longer than the default cutoff run in parallel.
+   **/
+  public static <E> void parallelMergeSort(PositionList<E> in, Comparator<E> c) {
+    parallelMergeSort(in, c, DEFAULT_CUTOFF);
+  }
+
+  /**
+   * Sorts the elements of list in nondecreasing order according to
+   * comparator c, using a merge-sort whose recursive calls on sublists
+   * longer than cutoff run in parallel in the common ForkJoinPool.  The
+   * elements are sorted in an array snapshot of the list and then stored
+   * back in its positions, so the positions themselves are unchanged.  A
+   * list of at most cutoff elements is sorted with mergeSort.
+   **/
+  @SuppressWarnings("unchecked")
+  public static <E> void parallelMergeSort(PositionList<E> in, Comparator<E> c, int cutoff) {
+    int n = in.size();
+    if (n <= cutoff) {
+      mergeSort(in, c);
+      return;
+    }
+    E[] a = (E[]) new Object[n];
+    int i = 0;
+    for (E e : in)
+      a[i++] = e;
+    parallelMergeSort(a, c, cutoff);
+    Position<E> p = in.first();
+    for (i = 0; i < n; i++) {
+      in.set(p, a[i]);
+      if (i < n - 1)
+        p = in.next(p);
+    }
+  }
+
+  /**
+   * Sorts the array in nondecreasing order according to comparator c,
+   * using a merge-sort whose recursive calls on subarrays longer than
+   * cutoff run in parallel in the common ForkJoinPool.  The sort is stable.
+   **/
+  public static <E> void parallelMergeSort(E[] a, Comparator<E> c, int cutoff) {
+    if (cutoff < 1)
+      throw new IllegalArgumentException("Cutoff must be positive");
+    if (a.length < 2)
+      return;
+    E[] copy = a.clone();
+    if (a.length <= cutoff)
+      arrayMergeSort(copy, a, 0, a.length, c);
+    else
+      ForkJoinPool.commonPool().invoke(new MergeSortTask<E>(copy, a, 0, a.length, c, cutoff));
+  }
+
+  /** Task that sorts src[lo..hi-1] into dst[lo..hi-1] in parallel. */
+  protected static class MergeSortTask<E> extends RecursiveAction {
+    protected final E[] src, dst;
+    protected final int lo, hi, cutoff;
+    protected final Comparator<E> c;
+    public MergeSortTask(E[] src, E[] dst, int lo, int hi, Comparator<E> c, int cutoff) {
+      this.src = src; this.dst = dst; this.lo = lo; this.hi = hi;
+      this.c = c; this.cutoff = cutoff;
+    }
+    protected void compute() {
+      if (hi - lo <= cutoff) {
+        arrayMergeSort(src, dst, lo, hi, c);
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      // sort each half of dst into src, then merge the halves back into dst
+      invokeAll(new MergeSortTask<E>(dst, src, lo, mid, c, cutoff),
+                new MergeSortTask<E>(dst, src, mid, hi, c, cutoff));
+      merge(src, lo, mid, hi, dst, c);
+    }
+  }
+
+  /**
+   * Sorts src[lo..hi-1] into dst[lo..hi-1].  On entry both ranges hold
+   * the same elements; on return src holds them in an unspecified order.
+   **/
+  protected static <E> void arrayMergeSort(E[] src, E[] dst, int lo, int hi, Comparator<E> c) {
+    if (hi - lo < 8) {  // insertion sort of dst for short ranges
+      for (int i = lo + 1; i < hi; i++) {
+        E e = dst[i];
+        int j = i;
+        for (; j > lo && c.compare(dst[j - 1], e) > 0; j--)
+          dst[j] = dst[j - 1];
+        dst[j] = e;
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    arrayMergeSort(dst, src, lo, mid, c);
+    arrayMergeSort(dst, src, mid, hi, c);
+    merge(src, lo, mid, hi, dst, c);
+  }
+
+  /**
+   * Merges the sorted ranges a[lo..mid-1] and a[mid..hi-1] into
+   * out[lo..hi-1], taking elements from the first range on ties.
+   **/
+  protected static <E> void merge(E[] a, int lo, int mid, int hi, E[] out, Comparator<E> c) {
+    int i = lo, j = mid, k = lo;
+    while (i < mid && j < hi)
+      if (c.compare(a[i], a[j]) <= 0)
+        out[k++] = a[i++];
+      else
+        out[k++] = a[j++];
+    while (i < mid)
+      out[k++] = a[i++];
+    while (j < hi)
+      out[k++] = a[j++];
+  }
 }
 
 class NodePositionList<E> implements PositionList<E> {
@@ -661,10 +3224,31 @@ class HeapPriorityQueue<K,V> implements PriorityQueue<K,V> {
   /** Inserts a key-value pair and returns the entry created */
   public Entry<K,V> insert(K k, V x) throws InvalidKeyException {
     checkKey(k);  // may throw an InvalidKeyException
-    Entry<K,V> entry = new MyEntry<K,V>(k,x);
+    Entry<K,V> entry = newEntry(k,x);
     upHeap(heap.add(entry));
     return entry;
   }
+  /** Inserts the key-value pairs keys[i], values[i] and returns the
+    * entries created.  A large batch is added bottom-up in O(n + k)
+    * time rather than O(k log n) */
+  public PositionList<Entry<K,V>> insertAll(K[] keys, V[] values) throws InvalidKeyException {
+    for (K k : keys)
+      checkKey(k);
+    int n = size();
+    PositionList<Entry<K,V>> entries = new ArrayPositionList<Entry<K,V>>(keys.length);
+    ArrayList<Position<Entry<K,V>>> added = new ArrayList<Position<Entry<K,V>>>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      Entry<K,V> entry = newEntry(keys[i], values[i]);
+      added.add(heap.add(entry));
+      entries.addLast(entry);
+    }
+    restoreHeap(n, added);
+    return entries;
+  }
+  /** Creates the entry stored in the heap for a key-value pair */
+  protected Entry<K,V> newEntry(K k, V x) {
+    return new MyEntry<K,V>(k,x);
+  }
   /** Removes and returns an entry with minimum key */
   public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
     if (isEmpty()) 
@@ -718,6 +3302,23 @@ class HeapPriorityQueue<K,V> implements PriorityQueue<K,V> {
 	break;
     }
   }
+  /** Restores heap-order after the given positions were added to a
+    * heap of n entries.  When no more entries were added than the heap
+    * held, each is bubbled up; otherwise the whole heap is rebuilt
+    * bottom-up by down-heap bubbling from the last internal node back
+    * to the root, which takes O(n + k) time */
+  protected void restoreHeap(int n, ArrayList<Position<Entry<K,V>>> added) {
+    if (added.size() <= n) {
+      for (Position<Entry<K,V>> p : added)
+        upHeap(p);
+      return;
+    }
+    ArrayList<Position<Entry<K,V>>> positions = new ArrayList<Position<Entry<K,V>>>(size());
+    for (Position<Entry<K,V>> p : heap.positions())
+      positions.add(p);  // positions in level order
+    for (int i = size() / 2; i >= 1; i--)
+      downHeap(positions.get(i - 1));
+  }
   /** Swaps the entries of the two given positions */
   protected void swap(Position<Entry<K,V>> x, Position<Entry<K,V>> y) {
     Entry<K,V> temp = x.element();
@@ -731,6 +3332,157 @@ class HeapPriorityQueue<K,V> implements PriorityQueue<K,V> {
   //end#fragment auxiliary
 }
 
+//begin#fragment HeapAdaptablePriorityQueue
+/** Realization of an adaptable priority queue by means of a heap.
+  * Each entry stores its current position in the heap, so that it can
+  * be removed or have its key replaced in O(log n) time without
+  * searching the heap.
+  */
+class HeapAdaptablePriorityQueue<K,V> extends HeapPriorityQueue<K,V>
+    implements AdaptablePriorityQueue<K,V> {
+  /** Inner class for a location-aware entry */
+  protected static class LocationAwareEntry<K,V>
+    extends MyEntry<K,V> implements Entry<K,V> {
+    /** Position where the entry is stored. */
+    private Position<Entry<K,V>> loc;
+    /** Queue the entry was inserted into. */
+    private HeapAdaptablePriorityQueue<K,V> owner;
+    public LocationAwareEntry(K key, V value, HeapAdaptablePriorityQueue<K,V> queue) {
+      super(key, value);
+      owner = queue;
+    }
+    protected HeapAdaptablePriorityQueue<K,V> owner() { return owner; }
+    protected Position<Entry<K,V>> location() { return loc; }
+    protected Position<Entry<K,V>> setLocation(Position<Entry<K,V>> pos) {
+      Position<Entry<K,V>> oldPosition = location();
+      loc = pos;
+      return oldPosition;
+    }
+    protected K setKey(K k) {
+      K oldKey = getKey();
+      key = k;
+      return oldKey;
+    }
+    protected V setValue(V v) {
+      V oldValue = getValue();
+      value = v;
+      return oldValue;
+    }
+  }
+  /** Creates an empty heap with a default comparator. */
+  public HeapAdaptablePriorityQueue() {
+    super();
+  }
+  /** Creates an empty heap with the given comparator. */
+  public HeapAdaptablePriorityQueue(Comparator<K> comp) {
+    super(comp);
+  }
+  /** Inserts a key-value pair and returns the entry created. */
+  public Entry<K,V> insert (K k, V v) throws InvalidKeyException {
+    checkKey(k);
+    LocationAwareEntry<K,V> entry = (LocationAwareEntry<K,V>) newEntry(k,v);
+    Position<Entry<K,V>> z = heap.add(entry);
+    entry.setLocation(z);
+    upHeap(z);
+    return entry;
+  }
+  /** Creates a location-aware entry owned by this queue. */
+  protected Entry<K,V> newEntry(K k, V v) {
+    return new LocationAwareEntry<K,V>(k,v,this);
+  }
+  /** Removes and returns an entry with minimum key. */
+  public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
+    LocationAwareEntry<K,V> min = (LocationAwareEntry<K,V>) super.removeMin();
+    min.setLocation(null);
+    // the last entry was moved to the root and may not have been swapped
+    if (!isEmpty())
+      getEntry(heap.root()).setLocation(heap.root());
+    return min;
+  }
+  /** Removes and returns the given entry from the heap. */
+  public Entry<K,V> remove(Entry<K,V> entry) throws InvalidEntryException {
+    LocationAwareEntry<K,V> ee = checkEntry(entry);
+    Position<Entry<K,V>> p = ee.location();
+    LocationAwareEntry<K,V> last = (LocationAwareEntry<K,V>) heap.remove();
+    if (last != ee) {
+      // move the last entry into the vacated position and restore the heap
+      replaceEntry(p, last);
+      upHeap(p);
+      downHeap(last.location());
+    }
+    ee.setLocation(null);
+    return ee;
+  }
+  /** Replaces the key of the given entry. */
+  public K replaceKey(Entry<K,V> entry, K k) 
+    throws InvalidEntryException, InvalidKeyException {
+    checkKey(k);
+    LocationAwareEntry<K,V> ee = checkEntry(entry);
+    K oldKey = ee.setKey(k);
+    upHeap(ee.location());
+    downHeap(ee.location());
+    return oldKey;
+  }
+  /** Replaces the value of the given entry. */
+  public V replaceValue(Entry<K,V> e, V value) throws InvalidEntryException {
+    LocationAwareEntry<K,V> ee = checkEntry(e);
+    return ee.setValue(value);
+  }
+  //end#fragment HeapAdaptablePriorityQueue
+  //begin#fragment auxiliary
+  /** Swaps the elements of the two positions. */
+  protected void swap(Position<Entry<K,V>> u, Position<Entry<K,V>> v) {
+    super.swap(u,v);
+    getEntry(u).setLocation(u);
+    getEntry(v).setLocation(v);
+  }
+  /** Records the positions of the added entries, then restores heap-order. */
+  protected void restoreHeap(int n, ArrayList<Position<Entry<K,V>>> added) {
+    for (Position<Entry<K,V>> p : added)
+      getEntry(p).setLocation(p);
+    super.restoreHeap(n, added);
+  }
+  /** Stores an entry at a position, replacing the entry there. */
+  protected void replaceEntry(Position<Entry<K,V>> v, LocationAwareEntry<K,V> e) {
+    heap.replace(v,e);
+    e.setLocation(v);
+  }
+  /** Gets the location-aware entry stored at a position. */
+  protected LocationAwareEntry<K,V> getEntry(Position<Entry<K,V>> p) {
+    return (LocationAwareEntry<K,V>) p.element();
+  }
+  /** Checks whether a given entry is valid. */
+  protected LocationAwareEntry<K,V> checkEntry(Entry<K,V> ent) 
+    throws InvalidEntryException {
+    if(ent == null || !(ent instanceof LocationAwareEntry))
+      throw new InvalidEntryException("Invalid entry");
+    LocationAwareEntry<K,V> ee = (LocationAwareEntry<K,V>) ent;
+    if (ee.owner() != this || ee.location() == null || ee.location().element() != ee)
+      throw new InvalidEntryException("Entry is not in this priority queue");
+    return ee;
+  }
+  //end#fragment auxiliary
+}
+
+//begin#fragment AdaptablePriorityQueue
+/** Interface for the adaptable priority queue ADT */
+interface AdaptablePriorityQueue<K,V> extends PriorityQueue<K,V> {
+  /** Removes and returns the given entry. */
+  public Entry<K,V> remove(Entry<K,V> e) throws InvalidEntryException;
+  /** Replaces the key of the given entry, returning the old key. */
+  public K replaceKey(Entry<K,V> e, K key)
+    throws InvalidEntryException, InvalidKeyException;
+  /** Replaces the value of the given entry, returning the old value. */
+  public V replaceValue(Entry<K,V> e, V value) throws InvalidEntryException;
+}
+//end#fragment AdaptablePriorityQueue
+
+class InvalidEntryException extends RuntimeException {
+  public InvalidEntryException (String message) {
+    super (message);
+  }
+}
+
 //begin#fragment Entry
 /** Interface for a key-value pair entry **/
 interface Entry<K,V> {
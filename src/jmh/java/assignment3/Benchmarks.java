@@ -0,0 +1,61 @@
+package assignment3;
+
+import java.io.IOException;
+import java.util.Random;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+JMH benchmarks for the scheduler and the data structures it is built on:
+  SchedulerBenchmark  - scheduler() end to end on synthetic task files
+  QueueBenchmark      - inserting n random keys into a priority queue then
+                        removing them all
+  SortBenchmark       - Sort.mergeSort on the position lists against the
+                        alternatives
+  TraversalBenchmark  - walking the position lists
+  ConcurrentQueueBenchmark
+                      - the skip list priority queue against a synchronized
+                        heap, shared by many threads
+
+Every input comes from SEED so that runs are comparable from one build to the
+next.  This class is the main class of target/benchmarks.jar and runs JMH with
+the GC profiler always on, so each result comes with its allocation rate and
+bytes allocated per operation.  It takes the usual JMH options, for example
+  java -jar target/benchmarks.jar Queue -f 1
+*/
+public class Benchmarks {
+
+    static final long SEED = 42;
+    static final int ELEMENTS = 200000;  // keys in each queue, sort and traversal input
+
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        // Listing and help run nothing, so leave them to the usual JMH main
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+
+    static int[] randomKeys(int n, int bound, Random random) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; ++i)
+            keys[i] = random.nextInt(bound);
+        return keys;
+    }
+
+    static Integer[] box(int[] keys) {
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; ++i)
+            boxed[i] = keys[i];
+        return boxed;
+    }
+}
@@ -0,0 +1,146 @@
+package assignment3;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/*
+ConcurrentSkipListPriorityQueue against a HeapPriorityQueue whose methods are
+all synchronized, under two workloads:
+  mixed     - every thread alternately inserts and removes the minimum of a
+              queue that starts with PREFILL entries, so it never empties
+  producers - producer threads insert while one dispatcher thread removes, as
+              when many threads submit tasks to a single scheduler.  Producers
+              wait while CAPACITY entries are queued, so that the queue stays
+              bounded, and the inserted and removed counters give the rates of
+              the work actually done.
+
+The threads of each workload are a JMH group, 4 threads for mixed and 4
+producers with 1 dispatcher by default.  Other thread counts are given with
+-tg, whose counts for producers are in method order, dispatchers first, so the
+scaling from 1 to 64 threads is measured with
+  for t in 1 2 4 8 16 32 64; do
+    java -jar target/benchmarks.jar ConcurrentQueueBenchmark.mixed -tg $t
+    java -jar target/benchmarks.jar ConcurrentQueueBenchmark.producers -tg 1,$t
+  done
+Each thread's keys come from SEED and its thread index and are boxed during
+setup, so boxing is not timed.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConcurrentQueueBenchmark {
+
+    static final int PREFILL = 1 << 16;
+    static final int CAPACITY = 1 << 18;
+    static final int KEYS = 1 << 16;  // keys generated for each thread, used cyclically
+
+    // The queue shared by the threads of a group, new for each iteration
+    @State(Scope.Group)
+    public static class Queue {
+        @Param({"synchronized", "skipList"})
+        String queue;
+
+        PriorityQueue<Integer, Integer> q;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            if (queue.equals("synchronized"))
+                q = new SynchronizedPriorityQueue<Integer, Integer>(new HeapPriorityQueue<Integer, Integer>());
+            else
+                q = new ConcurrentSkipListPriorityQueue<Integer, Integer>();
+            Random random = new Random(Benchmarks.SEED);
+            for (int i = 0; i < PREFILL; ++i)
+                q.insert(random.nextInt(1 << 20), i);
+        }
+    }
+
+    // Keys inserted by one thread
+    @State(Scope.Thread)
+    public static class Keys {
+        Integer[] keys;
+        int next;
+
+        @Setup(Level.Trial)
+        public void create(ThreadParams thread) {
+            Random random = new Random(Benchmarks.SEED + thread.getThreadIndex());
+            keys = Benchmarks.box(Benchmarks.randomKeys(KEYS, 1 << 20, random));
+        }
+
+        Integer next() {
+            Integer key = keys[next];
+            next = (next + 1) & (KEYS - 1);
+            return key;
+        }
+    }
+
+    // Work done by a thread of the producers workload, reported as rates
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counts {
+        public long inserted;
+        public long removed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inserted = 0;
+            removed = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Entry<Integer, Integer> mixed(Queue queue, Keys keys) {
+        Integer key = keys.next();
+        queue.q.insert(key, key);
+        return queue.q.removeMin();
+    }
+
+    @Benchmark
+    @Group("producers")
+    @GroupThreads(4)
+    public void produce(Queue queue, Keys keys, Counts counts) {
+        if (queue.q.size() >= CAPACITY) {
+            Thread.yield();
+            return;
+        }
+        Integer key = keys.next();
+        queue.q.insert(key, key);
+        ++counts.inserted;
+    }
+
+    @Benchmark
+    @Group("producers")
+    @GroupThreads(1)
+    public Entry<Integer, Integer> dispatch(Queue queue, Counts counts) {
+        // With more than one dispatcher the queue can empty between the calls
+        try {
+            if (!queue.q.isEmpty()) {
+                Entry<Integer, Integer> min = queue.q.removeMin();
+                ++counts.removed;
+                return min;
+            }
+        } catch (EmptyPriorityQueueException ex) {
+        }
+        Thread.yield();
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package assignment3;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Inserting ELEMENTS random keys below 1000 into a priority queue one at a time
+then removing them all, for HeapPriorityQueue and the int queues used by the
+scheduler.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class QueueBenchmark {
+
+    private int[] keys;
+    private Integer[] boxed;
+
+    @Setup
+    public void createKeys() {
+        keys = Benchmarks.randomKeys(Benchmarks.ELEMENTS, 1000, new Random(Benchmarks.SEED));
+        boxed = Benchmarks.box(keys);
+    }
+
+    @Benchmark
+    public long heapPriorityQueue() {
+        HeapPriorityQueue<Integer, Integer> queue = new HeapPriorityQueue<Integer, Integer>();
+        for (Integer k : boxed)
+            queue.insert(k, k);
+        long sum = 0;
+        while (!queue.isEmpty())
+            sum += queue.removeMin().getKey();
+        return sum;
+    }
+
+    @Benchmark
+    public long intHeapPriorityQueue() {
+        return drain(new IntHeapPriorityQueue(16, IntHeapPriorityQueue.DEFAULT_ARITY), keys);
+    }
+
+    @Benchmark
+    public long bucketPriorityQueue() {
+        return drain(new BucketPriorityQueue(1000, 16), keys);
+    }
+
+    // Inserts the keys one at a time then removes them all, returning the sum of the values
+    static long drain(IntPriorityQueue queue, int[] keys) {
+        for (int i = 0; i < keys.length; ++i)
+            queue.insert(keys[i], i);
+        long sum = 0;
+        while (!queue.isEmpty())
+            sum += queue.removeMinValue();
+        return sum;
+    }
+}
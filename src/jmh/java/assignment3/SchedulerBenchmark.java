@@ -0,0 +1,103 @@
+package assignment3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+scheduler() end to end on TASKS synthetic tasks whose release times are spread
+evenly (uniform), arrive in bursts of many tasks at the same time (bursty) or
+are far apart (sparse), each on the smallest feasible number of cores m and on
+2m and 4m.  Each operation reads the task file, sorts and simulates, and writes
+the schedule.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SchedulerBenchmark {
+
+    static final int TASKS = 200000;
+
+    @Param({"uniform", "bursty", "sparse"})
+    String shape;
+
+    @Param({"1", "2", "4"})
+    int factor;  // number of cores as a multiple of the minimum
+
+    private File dir, input, output;
+    private int m;
+
+    @Setup(Level.Trial)
+    public void createTasks() throws IOException {
+        TaskSet tasks = generate(shape, TASKS, new Random(Benchmarks.SEED));
+        dir = Files.createTempDirectory("benchmark").toFile();
+        input = new File(dir, shape + ".txt");
+        output = new File(dir, shape + "-schedule.txt");
+        write(tasks, input);
+        m = factor * new FeasibilityChecker(tasks, RadixSort.order(tasks.release, tasks.size)).minimumCores();
+    }
+
+    // The schedule is only written if the output file does not exist, otherwise a
+    // warning is printed as well, so remove it before each operation
+    @Setup(Level.Invocation)
+    public void removeSchedule() {
+        output.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void removeFiles() {
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public long scheduler() {
+        TaskScheduler.scheduler(input.getPath(), output.getPath(), m);
+        return output.length();
+    }
+
+    // Generates n tasks whose release times are spread evenly, arrive in bursts of
+    // many tasks at the same time, or are far apart
+    static TaskSet generate(String shape, int n, Random random) {
+        TaskSet tasks = new TaskSet(n);
+        int release = 0;
+        for (int i = 0; i < n; ++i) {
+            if (shape.equals("uniform"))
+                release = random.nextInt(n / 4);
+            else if (shape.equals("bursty"))
+                release += i % 1000 == 0 ? 1 + random.nextInt(500) : 0;
+            else
+                release += 1 + random.nextInt(1000);
+            tasks.add("task" + i, release, release + 1 + random.nextInt(100));
+        }
+        return tasks;
+    }
+
+    // Writes the tasks in the format read by scheduler()
+    static void write(TaskSet tasks, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+            for (int i = 0; i < tasks.size; ++i)
+                out.println(tasks.name(i) + " " + tasks.release[i] + " " + tasks.deadline[i]);
+        }
+    }
+}
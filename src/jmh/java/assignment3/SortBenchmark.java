@@ -0,0 +1,84 @@
+package assignment3;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Sort.mergeSort on NodePositionList and ArrayPositionList against
+Sort.parallelMergeSort, Arrays.sort and RadixSort.order, all on the same
+ELEMENTS random keys.  The lists and the array are refilled unsorted before
+each operation, outside the timing.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SortBenchmark {
+
+    private final Comparator<Integer> c = new DefaultComparator<Integer>();
+    private int[] keys;
+    private Integer[] boxed;
+    private PositionList<Integer> nodes, array;
+    private Integer[] sorted;
+
+    @Setup(Level.Trial)
+    public void createKeys() {
+        keys = Benchmarks.randomKeys(Benchmarks.ELEMENTS, Integer.MAX_VALUE, new Random(Benchmarks.SEED));
+        boxed = Benchmarks.box(keys);
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        nodes = new NodePositionList<Integer>();
+        array = new ArrayPositionList<Integer>(boxed.length);
+        for (Integer k : boxed) {
+            nodes.addLast(k);
+            array.addLast(k);
+        }
+        sorted = boxed.clone();
+    }
+
+    @Benchmark
+    public Integer mergeSortNodePositionList() {
+        Sort.mergeSort(nodes, c);
+        return nodes.first().element();
+    }
+
+    @Benchmark
+    public Integer mergeSortArrayPositionList() {
+        Sort.mergeSort(array, c);
+        return array.first().element();
+    }
+
+    @Benchmark
+    public Integer parallelMergeSortArrayPositionList() {
+        Sort.parallelMergeSort(array, c);
+        return array.first().element();
+    }
+
+    @Benchmark
+    public Integer arraysSort() {
+        Arrays.sort(sorted, c);
+        return sorted[0];
+    }
+
+    @Benchmark
+    public int radixSortOrder() {
+        return RadixSort.order(keys, keys.length)[0];
+    }
+}
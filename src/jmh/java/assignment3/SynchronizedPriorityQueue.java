@@ -0,0 +1,31 @@
+package assignment3;
+
+// Priority queue that makes every method of another queue synchronized
+class SynchronizedPriorityQueue<K, V> implements PriorityQueue<K, V> {
+
+    private final PriorityQueue<K, V> queue;
+
+    SynchronizedPriorityQueue(PriorityQueue<K, V> queue) {
+        this.queue = queue;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public synchronized Entry<K, V> min() throws EmptyPriorityQueueException {
+        return queue.min();
+    }
+
+    public synchronized Entry<K, V> insert(K key, V value) throws InvalidKeyException {
+        return queue.insert(key, value);
+    }
+
+    public synchronized Entry<K, V> removeMin() throws EmptyPriorityQueueException {
+        return queue.removeMin();
+    }
+}
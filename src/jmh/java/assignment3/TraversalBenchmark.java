@@ -0,0 +1,79 @@
+package assignment3;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Summing the ELEMENTS elements of a NodePositionList and an ArrayPositionList,
+by iterator and by moving from position to position with next().
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class TraversalBenchmark {
+
+    private PositionList<Integer> nodes, array;
+
+    @Setup
+    public void fill() {
+        Integer[] keys = Benchmarks.box(Benchmarks.randomKeys(Benchmarks.ELEMENTS, 1000, new Random(Benchmarks.SEED)));
+        nodes = new NodePositionList<Integer>();
+        array = new ArrayPositionList<Integer>(keys.length);
+        for (Integer k : keys) {
+            nodes.addLast(k);
+            array.addLast(k);
+        }
+    }
+
+    @Benchmark
+    public long iteratorNodePositionList() {
+        return iterate(nodes);
+    }
+
+    @Benchmark
+    public long iteratorArrayPositionList() {
+        return iterate(array);
+    }
+
+    @Benchmark
+    public long positionsNodePositionList() {
+        return walk(nodes);
+    }
+
+    @Benchmark
+    public long positionsArrayPositionList() {
+        return walk(array);
+    }
+
+    // Sums the elements using the iterator of the list
+    static long iterate(PositionList<Integer> list) {
+        long sum = 0;
+        for (Integer e : list)
+            sum += e;
+        return sum;
+    }
+
+    // Sums the elements moving from position to position with next()
+    static long walk(PositionList<Integer> list) {
+        long sum = 0;
+        Position<Integer> p = list.first();
+        for (int i = 1; i < list.size(); ++i) {
+            sum += p.element();
+            p = list.next(p);
+        }
+        return sum + p.element();
+    }
+}